@@ -3,8 +3,10 @@ package com.yuxian.backend.component;
 import com.yuxian.backend.entity.Coupon;
 import com.yuxian.backend.entity.Product;
 import com.yuxian.backend.entity.User;
+import com.yuxian.backend.entity.UserProfile;
 import com.yuxian.backend.repository.CouponRepository;
 import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.repository.UserProfileRepository;
 import com.yuxian.backend.repository.UserRepository;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.io.ClassPathResource;
@@ -28,15 +30,18 @@ public class DataInit implements CommandLineRunner {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final CouponRepository couponRepository;
+    private final UserProfileRepository userProfileRepository;
 
     public DataInit(ProductRepository productRepository,
             UserRepository userRepository,
             PasswordEncoder passwordEncoder,
-            CouponRepository couponRepository) {
+            CouponRepository couponRepository,
+            UserProfileRepository userProfileRepository) {
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.couponRepository = couponRepository;
+        this.userProfileRepository = userProfileRepository;
     }
 
     private static final Map<String, double[]> PRICE_RANGES = new HashMap<>();
@@ -113,8 +118,12 @@ public class DataInit implements CommandLineRunner {
             admin.setDisplayName("超级管理员");
             admin.setRole("ADMIN");
             admin.setPoints(9999);
-            admin.setAvatar("https://api.dicebear.com/7.x/avataaars/svg?seed=admin");
-            userRepository.save(admin);
+            admin = userRepository.save(admin);
+
+            UserProfile profile = new UserProfile();
+            profile.setUserId(admin.getId());
+            profile.setAvatar("https://api.dicebear.com/7.x/avataaars/svg?seed=admin");
+            userProfileRepository.save(profile);
         }
 
         if (couponRepository.count() == 0) {
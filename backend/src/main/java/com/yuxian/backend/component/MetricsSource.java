@@ -0,0 +1,13 @@
+package com.yuxian.backend.component;
+
+import java.util.Map;
+
+/**
+ * 运行时指标来源，实现类的指标会汇总到 /api/admin/metrics
+ */
+public interface MetricsSource {
+
+    String getMetricsName();
+
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,34 @@
+package com.yuxian.backend.component;
+
+import com.yuxian.backend.repository.OrderRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时把旧版本 order_record.status 字符串迁移到 status_code，分批执行避免长事务；
+ * 已迁移的行不会重复处理，旧列保留以便回滚。
+ */
+@Component
+public class OrderStatusMigration implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final OrderRepository orderRepository;
+
+    public OrderStatusMigration(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        int total = 0;
+        int migrated;
+        do {
+            migrated = orderRepository.migrateLegacyStatus(BATCH_SIZE);
+            total += migrated;
+        } while (migrated == BATCH_SIZE);
+        if (total > 0) {
+            System.out.println("OrderStatusMigration: 已迁移 " + total + " 笔订单的状态字段");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.yuxian.backend.component;
+
+import com.yuxian.backend.repository.UserRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时把旧版本 users.avatar 中的头像迁移到 user_profiles，分批执行避免长事务；
+ * 已迁移的用户不会重复处理，旧列保留以便回滚。收货地址沿用原 user_id 列，无需迁移。
+ */
+@Component
+public class UserProfileMigration implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final UserRepository userRepository;
+
+    public UserProfileMigration(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        int total = 0;
+        int migrated;
+        do {
+            migrated = userRepository.migrateLegacyAvatars(BATCH_SIZE);
+            total += migrated;
+        } while (migrated == BATCH_SIZE);
+        if (total > 0) {
+            System.out.println("UserProfileMigration: 已迁移 " + total + " 位用户的头像");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.yuxian.backend.config;
+
+import java.security.Principal;
+
+/**
+ * 已认证的请求主体，由 JwtFilter 放入 SecurityContext
+ * 实现 Principal，Authentication.getName() 仍返回用户名
+ */
+public class AuthUser implements Principal {
+
+    private final Long userId;
+    private final String username;
+    private final String role;
+
+    public AuthUser(Long userId, String username, String role) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
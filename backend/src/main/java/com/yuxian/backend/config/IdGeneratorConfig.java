@@ -0,0 +1,45 @@
+package com.yuxian.backend.config;
+
+import com.yuxian.backend.utils.SnowflakeIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 主键生成器节点号配置；每个实例必须配置不同的 id.snowflake.node-id（0 ~ 31），
+ * 未配置或超出范围时启动失败，避免多个实例自动选到同一节点号而发出重复主键
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorConfig.class);
+
+    @Value("${id.snowflake.node-id:}")
+    private String nodeId;
+
+    @PostConstruct
+    public void configure() {
+        SnowflakeIdGenerator.configure(parseNodeId(nodeId));
+        log.info("主键生成器节点号: {}", SnowflakeIdGenerator.shared().getNodeId());
+    }
+
+    static long parseNodeId(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("未配置 id.snowflake.node-id（环境变量 SNOWFLAKE_NODE_ID），取值 0 ~ "
+                    + SnowflakeIdGenerator.MAX_NODE + "，每个实例必须不同");
+        }
+        long id;
+        try {
+            id = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("id.snowflake.node-id 不是整数: " + value);
+        }
+        if (id < 0 || id > SnowflakeIdGenerator.MAX_NODE) {
+            throw new IllegalStateException("id.snowflake.node-id 必须在 0 ~ " + SnowflakeIdGenerator.MAX_NODE
+                    + " 之间: " + id);
+        }
+        return id;
+    }
+}
@@ -1,7 +1,6 @@
 package com.yuxian.backend.config;
 
-import com.yuxian.backend.entity.User;
-import com.yuxian.backend.repository.UserRepository;
+import com.yuxian.backend.service.UserPrincipalCache;
 import com.yuxian.backend.utils.JwtUtils;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -19,11 +18,11 @@ import java.util.Collections;
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserRepository userRepository;
+    private final UserPrincipalCache principalCache;
 
-    public JwtFilter(JwtUtils jwtUtils, UserRepository userRepository) {
+    public JwtFilter(JwtUtils jwtUtils, UserPrincipalCache principalCache) {
         this.jwtUtils = jwtUtils;
-        this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -37,13 +36,13 @@ public class JwtFilter extends OncePerRequestFilter {
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                User user = userRepository.findByUsername(username);
+                AuthUser principal = principalCache.get(username);
 
-                if (user != null) {
-                    SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + user.getRole());
+                if (principal != null) {
+                    SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + principal.getRole());
 
                     UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                            user.getUsername(), null, Collections.singletonList(authority));
+                            principal, null, Collections.singletonList(authority));
 
                     SecurityContextHolder.getContext().setAuthentication(auth);
                 }
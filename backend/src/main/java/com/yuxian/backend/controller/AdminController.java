@@ -42,6 +42,23 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getDashboardStats());
     }
 
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getRuntimeMetrics() {
+        return ResponseEntity.ok(adminService.getRuntimeMetrics());
+    }
+
+    @PutMapping("/products/{id}/hot")
+    public ResponseEntity<?> enableHotProduct(@PathVariable Long id) {
+        adminService.setHotProduct(id, true);
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/products/{id}/hot")
+    public ResponseEntity<?> disableHotProduct(@PathVariable Long id) {
+        adminService.setHotProduct(id, false);
+        return ResponseEntity.ok().build();
+    }
+
     @PutMapping("/orders/{id}/status")
     public ResponseEntity<?> updateOrderStatus(@PathVariable Long id, @RequestBody Map<String, String> body) {
         String newStatus = body.get("status");
@@ -1,7 +1,8 @@
 package com.yuxian.backend.controller;
 
+import com.yuxian.backend.config.AuthUser;
+import com.yuxian.backend.config.CurrentUser;
 import com.yuxian.backend.entity.Coupon;
-import com.yuxian.backend.entity.User;
 import com.yuxian.backend.entity.UserCoupon;
 import com.yuxian.backend.repository.CouponRepository;
 import com.yuxian.backend.repository.UserCouponRepository;
@@ -57,9 +58,8 @@ public class CouponController {
     }
 
     @GetMapping("/market")
-    public List<Map<String, Object>> getMarketCoupons() {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
+    public List<Map<String, Object>> getMarketCoupons(@CurrentUser AuthUser currentUser) {
+        String username = currentUser.getUsername();
         List<Coupon> allCoupons = couponRepository.findByStatus(1);
         return allCoupons.stream().map(coupon -> {
             boolean hasReceived = userCouponRepository.existsByUsernameAndCouponId(username, coupon.getId());
@@ -80,17 +80,15 @@ public class CouponController {
     }
 
     @GetMapping("/my")
-    public List<UserCoupon> getMyCoupons() {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
+    public List<UserCoupon> getMyCoupons(@CurrentUser AuthUser currentUser) {
+        String username = currentUser.getUsername();
         return userCouponRepository.findByUsernameOrderByReceiveTimeDesc(username);
     }
 
     @PostMapping("/{id}/receive")
     @Transactional
-    public Map<String, Object> receiveCoupon(@PathVariable Long id) {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
+    public Map<String, Object> receiveCoupon(@PathVariable Long id, @CurrentUser AuthUser currentUser) {
+        String username = currentUser.getUsername();
         Coupon coupon = couponRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("优惠券不存在"));
 
@@ -124,9 +122,9 @@ public class CouponController {
 
     @PostMapping("/exchange")
     @Transactional
-    public Map<String, Object> exchangeCoupon(@RequestBody Map<String, Object> payload) {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
+    public Map<String, Object> exchangeCoupon(@RequestBody Map<String, Object> payload,
+            @CurrentUser AuthUser currentUser) {
+        String username = currentUser.getUsername();
         Integer exchangeId = Integer.parseInt(payload.get("exchangeId").toString());
 
         ExchangeRule rule = EXCHANGE_RULES.get(exchangeId);
@@ -134,18 +132,11 @@ public class CouponController {
             throw new RuntimeException("无效的兑换请求");
         }
 
-        User user = userRepository.findByUsername(username);
-        if (user == null) {
-            throw new RuntimeException("用户不存在");
-        }
-
-        int updatedRows = userRepository.deductPoints(user.getId(), rule.cost);
+        int updatedRows = userRepository.deductPoints(currentUser.getUserId(), rule.cost);
         if (updatedRows == 0) {
             throw new RuntimeException("积分不足，无法兑换");
         }
 
-        user = userRepository.findById(user.getId()).orElseThrow();
-
         UserCoupon uc = new UserCoupon();
         uc.setUsername(username);
         uc.setCouponId(-1L);
@@ -169,7 +160,7 @@ public class CouponController {
 
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
-        result.put("points", user.getPoints());
+        result.put("points", userRepository.findPointsById(currentUser.getUserId()));
         result.put("message", "兑换成功");
         return result;
     }
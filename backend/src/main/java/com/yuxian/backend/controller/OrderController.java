@@ -1,13 +1,25 @@
 package com.yuxian.backend.controller;
 
+import com.yuxian.backend.config.AuthUser;
+import com.yuxian.backend.config.CurrentUser;
+import com.yuxian.backend.dto.CursorPage;
+import com.yuxian.backend.dto.OrderIntakeStatus;
+import com.yuxian.backend.dto.OrderSummaryVO;
+import com.yuxian.backend.dto.RefundAuditResult;
 import com.yuxian.backend.entity.Address;
+import com.yuxian.backend.service.IdempotencyStore;
+import com.yuxian.backend.service.OrderIntakeQueue;
 import com.yuxian.backend.service.OrderService;
+import com.yuxian.backend.service.RefundBatchAuditService;
 import com.yuxian.backend.entity.OrderRecord;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,10 +27,20 @@ import java.util.Map;
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_AUDIT = 5000;
+
     private final OrderService orderService;
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final IdempotencyStore idempotencyStore;
+    private final RefundBatchAuditService refundBatchAuditService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIntakeQueue orderIntakeQueue,
+            IdempotencyStore idempotencyStore, RefundBatchAuditService refundBatchAuditService) {
         this.orderService = orderService;
+        this.orderIntakeQueue = orderIntakeQueue;
+        this.idempotencyStore = idempotencyStore;
+        this.refundBatchAuditService = refundBatchAuditService;
     }
 
     @GetMapping
@@ -27,29 +49,75 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getMyOrders(username));
     }
 
+    /**
+     * 订单摘要分页，cursor 为上一页返回的 nextCursor
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<CursorPage<OrderSummaryVO>> getMyOrderSummaries(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(orderService.getMyOrderSummaries(username, cursor, pageSize));
+    }
+
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String, Object> payload) {
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> payload,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (idempotencyKey != null) {
+            return idempotencyStore.execute(username, "createOrder", idempotencyKey, payload,
+                    () -> doCreateOrder(username, payload));
+        }
+        return doCreateOrder(username, payload);
+    }
 
+    private ResponseEntity<Map<String, Object>> doCreateOrder(String username, Map<String, Object> payload) {
         List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("items");
+        Long orderId = orderService.createOrder(username, items, parseAddress(payload), parseCouponId(payload));
 
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "订单已创建，请前往支付",
+                "orderId", orderId));
+    }
+
+    /**
+     * 异步下单：校验后入队，返回受理单号；结果通过轮询或 WebSocket 获取
+     */
+    @PostMapping("/intake")
+    public ResponseEntity<OrderIntakeStatus> submitOrder(@RequestBody Map<String, Object> payload) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("items");
+        OrderIntakeStatus status = orderIntakeQueue.submit(username, items, parseAddress(payload),
+                parseCouponId(payload));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+    }
+
+    @GetMapping("/intake/{ticket}")
+    public ResponseEntity<OrderIntakeStatus> getIntakeStatus(@PathVariable String ticket) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(orderIntakeQueue.getStatus(ticket, username));
+    }
+
+    private Address parseAddress(Map<String, Object> payload) {
         Map<String, String> addrMap = (Map<String, String>) payload.get("address");
+        if (addrMap == null) {
+            return null;
+        }
         Address address = new Address();
         address.setContact(addrMap.get("contact"));
         address.setPhone(addrMap.get("phone"));
         address.setDetail(addrMap.get("detail"));
+        return address;
+    }
 
-        Long couponId = null;
+    private Long parseCouponId(Map<String, Object> payload) {
         if (payload.get("couponId") != null) {
-            couponId = Long.valueOf(payload.get("couponId").toString());
+            return Long.valueOf(payload.get("couponId").toString());
         }
-
-        Long orderId = orderService.createOrder(username, items, address, couponId);
-
-        return ResponseEntity.ok(Map.of(
-                "success", true,
-                "message", "订单已创建，请前往支付",
-                "orderId", orderId));
+        return null;
     }
 
     @PostMapping("/{id}/refund")
@@ -64,8 +132,16 @@ public class OrderController {
 
     @GetMapping("/admin/refunds")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> getPendingRefunds() {
-        return ResponseEntity.ok(orderService.getPendingRefundsWithDetails());
+    public ResponseEntity<?> getPendingRefunds(@RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+        // 不带 page 时保持原来的完整列表返回，兼容现有售后页面
+        if (page == null) {
+            return ResponseEntity.ok(orderService.getPendingRefundsWithDetails());
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(orderService.getPendingRefundPage(Math.max(1, page), pageSize, sort, direction));
     }
 
     @PostMapping("/admin/refunds/{id}/audit")
@@ -82,12 +158,65 @@ public class OrderController {
         return ResponseEntity.ok("审核处理完成");
     }
 
+    /**
+     * 批量审核售后，body: {orderIds: [...], pass: true/false, reason: "..."}；逐单返回处理结果
+     */
+    @PostMapping("/admin/refunds/batch-audit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> batchAuditRefunds(@RequestBody Map<String, Object> payload) {
+        String adminUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        if (!(payload.get("orderIds") instanceof List)) {
+            return ResponseEntity.badRequest().body("请选择要审核的订单");
+        }
+        List<Long> orderIds = new ArrayList<>();
+        for (Object id : (List<?>) payload.get("orderIds")) {
+            if (id != null) {
+                orderIds.add(Long.valueOf(id.toString()));
+            }
+        }
+        if (orderIds.isEmpty()) {
+            return ResponseEntity.badRequest().body("请选择要审核的订单");
+        }
+        if (orderIds.size() > MAX_BATCH_AUDIT) {
+            return ResponseEntity.badRequest().body("单次最多审核 " + MAX_BATCH_AUDIT + " 笔订单");
+        }
+
+        Boolean passObj = (Boolean) payload.get("pass");
+        boolean pass = passObj != null && passObj;
+        String reason = (String) payload.get("reason");
+
+        List<RefundAuditResult> results = refundBatchAuditService.audit(orderIds, pass, reason, adminUsername);
+        int succeeded = 0;
+        for (RefundAuditResult result : results) {
+            if (result.isSuccess()) {
+                succeeded++;
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("total", results.size());
+        response.put("succeeded", succeeded);
+        response.put("failed", results.size() - succeeded);
+        response.put("results", results);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/{id}/pay")
-    public ResponseEntity<String> payOrder(@PathVariable Long id,
-            @RequestBody(required = false) Map<String, String> payload) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+    public ResponseEntity<?> payOrder(@PathVariable Long id,
+            @RequestBody(required = false) Map<String, String> payload,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @CurrentUser AuthUser currentUser) {
         String method = (payload != null && payload.get("method") != null) ? payload.get("method") : "NORMAL";
-        orderService.payOrder(id, username, method);
+        if (idempotencyKey != null) {
+            return idempotencyStore.execute(currentUser.getUsername(), "payOrder:" + id, idempotencyKey, method,
+                    () -> doPayOrder(id, currentUser, method));
+        }
+        return doPayOrder(id, currentUser, method);
+    }
+
+    private ResponseEntity<String> doPayOrder(Long id, AuthUser currentUser, String method) {
+        orderService.payOrder(id, currentUser, method);
         return ResponseEntity.ok("支付成功");
     }
 
@@ -1,22 +1,32 @@
 package com.yuxian.backend.controller;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import com.yuxian.backend.config.AuthUser;
+import com.yuxian.backend.config.CurrentUser;
+import com.yuxian.backend.dto.CursorPage;
+import com.yuxian.backend.dto.UserProfileVO;
 import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
 import com.yuxian.backend.entity.Product;
-import com.yuxian.backend.entity.User;
 import com.yuxian.backend.repository.ProductRepository;
 import com.yuxian.backend.repository.UserRepository;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import org.springframework.transaction.annotation.Transactional;
+import com.yuxian.backend.service.OrderArchiveService;
 import com.yuxian.backend.service.OrderService;
+import com.yuxian.backend.service.PriceHistoryStore;
+import com.yuxian.backend.service.ProductCache;
+import com.yuxian.backend.service.ProductCatalog;
+import com.yuxian.backend.service.ProductInsightEngine;
+import com.yuxian.backend.service.ProductSearchIndex;
+import com.yuxian.backend.service.RecommendationSampler;
+import com.yuxian.backend.service.UserProfileService;
+import com.yuxian.backend.utils.CursorCodec;
 
 @RestController
 @RequestMapping("/api/products")
@@ -27,218 +37,241 @@ public class ProductController {
     private final UserRepository userRepository;
 
     private final OrderService orderService;
-
-    private static final Map<String, double[]> PORT_COORDINATES = new HashMap<>();
-    static {
-        PORT_COORDINATES.put("大连", new double[] { 121.6147, 38.9140 });
-        PORT_COORDINATES.put("山东", new double[] { 120.3826, 36.0671 });
-        PORT_COORDINATES.put("舟山", new double[] { 122.2965, 29.9511 });
-        PORT_COORDINATES.put("东海", new double[] { 122.2965, 29.9511 });
-        PORT_COORDINATES.put("福建", new double[] { 119.2965, 26.0745 });
-        PORT_COORDINATES.put("广东", new double[] { 113.2644, 23.1291 });
-        PORT_COORDINATES.put("湛江", new double[] { 110.3594, 21.2707 });
-        PORT_COORDINATES.put("海南", new double[] { 110.1999, 20.0440 });
-        PORT_COORDINATES.put("进口", new double[] { 121.4737, 31.2304 });
-        PORT_COORDINATES.put("远洋", new double[] { 121.4737, 31.2304 });
-        PORT_COORDINATES.put("DEFAULT", new double[] { 122.2965, 29.9511 });
-    }
+    private final ProductCatalog productCatalog;
+    private final ProductSearchIndex productSearchIndex;
+    private final RecommendationSampler recommendationSampler;
+    private final ProductInsightEngine productInsightEngine;
+    private final PriceHistoryStore priceHistoryStore;
+    private final ProductCache productCache;
+    private final UserProfileService userProfileService;
+    private final OrderArchiveService orderArchiveService;
+
+    private static final int DAILY_RECOMMEND_COUNT = 4;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
 
     public ProductController(ProductRepository productRepository,
             com.yuxian.backend.repository.OrderRepository orderRepository,
             UserRepository userRepository,
-            OrderService orderService) {
+            OrderService orderService,
+            ProductCatalog productCatalog,
+            ProductSearchIndex productSearchIndex,
+            RecommendationSampler recommendationSampler,
+            ProductInsightEngine productInsightEngine,
+            PriceHistoryStore priceHistoryStore,
+            ProductCache productCache,
+            UserProfileService userProfileService,
+            OrderArchiveService orderArchiveService) {
         this.productRepository = productRepository;
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.orderService = orderService;
+        this.productCatalog = productCatalog;
+        this.productSearchIndex = productSearchIndex;
+        this.recommendationSampler = recommendationSampler;
+        this.productInsightEngine = productInsightEngine;
+        this.priceHistoryStore = priceHistoryStore;
+        this.productCache = productCache;
+        this.userProfileService = userProfileService;
+        this.orderArchiveService = orderArchiveService;
     }
 
+    /**
+     * 未传 cursor/size 时返回完整列表；传入任一参数时按 (listDate, id) 倒序游标分页
+     */
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ProductCatalog.Snapshot snapshot = productCatalog.current();
+        if (cursor == null && size == null) {
+            return jsonBytes(snapshot.getAllJson());
+        }
+        return ResponseEntity.ok(snapshot.page(null, cursor, pageSize(size)));
     }
 
     @GetMapping("/category/{type}")
-    public List<Product> getProductsByCategory(@PathVariable String type) {
-        return productRepository.findByCategory(type);
+    public ResponseEntity<?> getProductsByCategory(@PathVariable String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ProductCatalog.Snapshot snapshot = productCatalog.current();
+        if (cursor == null && size == null) {
+            return jsonBytes(snapshot.getCategoryJson(type));
+        }
+        return ResponseEntity.ok(snapshot.page(type, cursor, pageSize(size)));
     }
 
+    /**
+     * 搜索结果按相关度排序；分页时游标记录 (得分, id)，下一页从该位置之后继续
+     */
     @GetMapping("/search")
-    public List<Product> searchProducts(@RequestParam String keyword) {
-        return productRepository.findByNameContaining(keyword);
+    public ResponseEntity<?> searchProducts(@RequestParam String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ProductCatalog.Snapshot snapshot = productCatalog.current();
+        boolean paged = cursor != null || size != null;
+        if (keyword.isBlank()) {
+            return paged
+                    ? ResponseEntity.ok(snapshot.page(null, cursor, pageSize(size)))
+                    : jsonBytes(snapshot.getAllJson());
+        }
+
+        // 不截断命中列表：整表返回与原 LIKE 查询一致，分页时游标也能走到最后一条
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.searchHits(keyword, Integer.MAX_VALUE);
+        if (!paged) {
+            return ResponseEntity.ok(resolveHits(snapshot, hits));
+        }
+
+        int from = 0;
+        if (cursor != null) {
+            long[] key = CursorCodec.decode(cursor, 2);
+            double lastScore = Double.longBitsToDouble(key[0]);
+            while (from < hits.size()) {
+                ProductSearchIndex.Hit hit = hits.get(from);
+                if (hit.getScore() < lastScore || (hit.getScore() == lastScore && hit.getProductId() > key[1])) {
+                    break;
+                }
+                from++;
+            }
+        }
+        int to = Math.min(from + pageSize(size), hits.size());
+        String next = null;
+        if (to < hits.size() && to > from) {
+            ProductSearchIndex.Hit last = hits.get(to - 1);
+            next = CursorCodec.encode(Double.doubleToLongBits(last.getScore()), last.getProductId());
+        }
+        return ResponseEntity.ok(new CursorPage<>(resolveHits(snapshot, hits.subList(from, to)), next));
+    }
+
+    private List<Product> resolveHits(ProductCatalog.Snapshot snapshot, List<ProductSearchIndex.Hit> hits) {
+        List<Product> result = new ArrayList<>(hits.size());
+        for (ProductSearchIndex.Hit hit : hits) {
+            Product product = snapshot.getProduct(hit.getProductId());
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 
     @GetMapping("/{id}")
     public Product getProductById(@PathVariable Long id) {
-        return productRepository.findById(id).orElse(null);
+        return productCache.get(id);
     }
 
     @GetMapping("/{id}/insight")
-    public Map<String, Object> getProductInsight(@PathVariable Long id) {
-        Product product = productRepository.findById(id).orElse(null);
-        Map<String, Object> result = new HashMap<>();
-
-        if (product == null)
-            return result;
-
-        List<Map<String, Object>> priceHistory = new ArrayList<>();
-
-        double currentPrice = product.getPrice().doubleValue();
-
-        LocalDate today = LocalDate.now();
-        Random random = new Random(id);
-
-        List<Double> simulatedPrices = new ArrayList<>();
-        simulatedPrices.add(currentPrice);
-
-        double tempPrice = currentPrice;
-        for (int i = 0; i < 6; i++) {
-            double volatility = 0.03;
-            double change = 1.0 + (random.nextGaussian() * volatility);
-            tempPrice = tempPrice / change;
-
-            if (tempPrice < currentPrice * 0.5)
-                tempPrice = currentPrice * 0.55;
-            if (tempPrice > currentPrice * 1.5)
-                tempPrice = currentPrice * 1.45;
-
-            simulatedPrices.add(tempPrice);
-        }
-
-        Collections.reverse(simulatedPrices);
+    public ResponseEntity<byte[]> getProductInsight(@PathVariable Long id) {
+        return jsonBytes(productInsightEngine.getInsightJson(id));
+    }
 
-        for (int i = 0; i < 7; i++) {
-            Map<String, Object> point = new HashMap<>();
-            LocalDate date = today.minusDays(6 - i);
-            double p = simulatedPrices.get(i);
-            point.put("date", date.format(DateTimeFormatter.ofPattern("MM-dd")));
-            point.put("price", Double.parseDouble(String.format("%.2f", p)));
-            priceHistory.add(point);
-        }
-        result.put("priceHistory", priceHistory);
-
-        List<Map<String, Object>> traceEvents = new ArrayList<>();
-        LocalDate catchDate = today.minusDays(2);
-        LocalDate transitDate = today.minusDays(1);
-        traceEvents.add(
-                createTraceEvent(catchDate.toString() + " 04:30", "捕捞作业完成", "作业渔船：浙普渔" + (60000 + id * 123) + "号"));
-        traceEvents.add(createTraceEvent(transitDate.toString() + " 09:15", "港口卸货入库", "鲜度等级：特A级"));
-        traceEvents.add(createTraceEvent(today.toString() + " 02:00", "全程冷链运输中", "库温：-18.5°C"));
-        traceEvents.add(createTraceEvent(today.toString() + " 08:00", "到达城市前置仓", "已上架"));
-        result.put("traceEvents", traceEvents);
-
-        String origin = product.getOrigin() != null ? product.getOrigin() : "";
-        double[] port = PORT_COORDINATES.get("DEFAULT");
-
-        for (String key : PORT_COORDINATES.keySet()) {
-            if (origin.contains(key)) {
-                port = PORT_COORDINATES.get(key);
-                break;
+    @GetMapping("/{id}/price-history")
+    public List<Map<String, Object>> getPriceHistory(@PathVariable Long id,
+            @RequestParam(defaultValue = "7d") String range) {
+        if ("all".equals(range)) {
+            List<Map<String, Object>> ticks = new ArrayList<>();
+            for (long[] tick : priceHistoryStore.readTicks(id)) {
+                Map<String, Object> point = new HashMap<>();
+                point.put("time", java.time.Instant.ofEpochSecond(tick[0]).toString());
+                point.put("price", tick[1] / 100.0);
+                ticks.add(point);
             }
+            return ticks;
         }
 
-        boolean isImport = origin.contains("进口") || origin.contains("大西洋") || origin.contains("远洋")
-                || origin.contains("美洲");
-
-        List<double[]> trajectory = new ArrayList<>();
-        double endLng = port[0];
-        double endLat = port[1];
-        double startLng, startLat;
-        Random rnd = new Random();
-
-        if (isImport) {
-            startLng = endLng + 15.0 + rnd.nextDouble() * 5.0;
-            startLat = endLat - 10.0 + rnd.nextDouble() * 5.0;
-        } else {
-            startLng = endLng + 3.0 + rnd.nextDouble() * 2.0;
-            startLat = endLat + (rnd.nextDouble() - 0.5) * 4.0;
+        PriceHistoryStore.DailySeries series;
+        switch (range) {
+            case "30d":
+                series = priceHistoryStore.dailyCloses(id, 30, java.time.LocalDate.now());
+                break;
+            case "1y":
+                series = priceHistoryStore.weeklyCloses(id, java.time.LocalDate.now());
+                break;
+            default:
+                series = priceHistoryStore.dailyCloses(id, 7, java.time.LocalDate.now());
         }
 
-        int steps = 40;
-        for (int i = 0; i <= steps; i++) {
-            double ratio = (double) i / steps;
-            double curveIntensity = isImport ? 2.5 : 0.5;
-            double curve = Math.sin(ratio * Math.PI) * curveIntensity;
-            double lng = startLng + (endLng - startLng) * ratio - curve;
-            double lat = startLat + (endLat - startLat) * ratio + (rnd.nextDouble() - 0.5) * 0.05;
-            trajectory.add(new double[] { lng, lat });
+        List<Map<String, Object>> points = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            Map<String, Object> point = new HashMap<>();
+            point.put("date", series.dayAt(i).toString());
+            point.put("price", series.closeAt(i));
+            points.add(point);
         }
-        result.put("trajectory", trajectory);
-
-        Map<String, Object> environment = new HashMap<>();
-        environment.put("waterTemp", String.format("%.1f", 16.0 + rnd.nextDouble() * 4));
-        environment.put("salinity", String.format("%.1f", 3.2 + rnd.nextDouble() * 0.3));
-        environment.put("windSpeed", String.format("%.1f", 2.0 + rnd.nextDouble() * 5));
-        environment.put("weather", rnd.nextBoolean() ? "晴朗" : "多云");
-        result.put("environment", environment);
-
-        result.put("blockchainHash",
-                "0x" + Long.toHexString(Double.doubleToLongBits(Math.random())).toUpperCase() + "...VERIFIED");
-
-        return result;
+        return points;
     }
 
     @DeleteMapping("/order/{id}")
-    public Map<String, String> deleteOrder(@PathVariable Long id) {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
-        OrderRecord order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("订单不存在"));
-
-        if (!order.getUsername().equals(username)) {
-            throw new RuntimeException("无权删除此订单");
+    public Map<String, String> deleteOrder(@PathVariable Long id, @CurrentUser AuthUser currentUser) {
+        OrderRecord order = orderRepository.findById(id).orElse(null);
+        if (order == null) {
+            // 已归档的订单从归档表删除
+            if (!orderArchiveService.deleteUserOrder(id, currentUser.getUsername(), null)) {
+                throw new RuntimeException("订单不存在");
+            }
+        } else {
+            if (!order.getUsername().equals(currentUser.getUsername())) {
+                throw new RuntimeException("无权删除此订单");
+            }
+            orderRepository.deleteById(id);
         }
 
-        orderRepository.deleteById(id);
         Map<String, String> response = new HashMap<>();
         response.put("message", "订单已删除");
         return response;
     }
 
-    private Map<String, Object> createTraceEvent(String time, String title, String desc) {
-        Map<String, Object> event = new HashMap<>();
-        event.put("time", time);
-        event.put("title", title);
-        event.put("desc", desc);
-        return event;
+    private ResponseEntity<byte[]> jsonBytes(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @PostMapping("/order/{id}/receive")
     @Transactional
-    public ResponseEntity<?> confirmReceipt(@PathVariable Long id) {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
+    public ResponseEntity<?> confirmReceipt(@PathVariable Long id, @CurrentUser AuthUser currentUser) {
         OrderRecord order = orderRepository.findById(id).orElse(null);
         if (order == null)
             return ResponseEntity.badRequest().body("订单不存在");
 
-        if (!order.getUsername().equals(username)) {
+        if (!order.getUsername().equals(currentUser.getUsername())) {
             return ResponseEntity.status(403).body("无权操作此订单");
         }
 
-        if ("已送达".equals(order.getStatus()))
+        if (order.getStatus() == OrderStatus.DELIVERED)
             return ResponseEntity.badRequest().body("订单已完成");
 
-        order.setStatus("已送达");
-        orderRepository.save(order);
+        OrderStatus current = order.getStatus();
+        if (current == null || !current.canTransitionTo(OrderStatus.DELIVERED)) {
+            return ResponseEntity.badRequest().body("当前订单状态不能确认收货");
+        }
+        // 条件更新：并发确认收货时只有一个请求能改到已送达，积分只发一次
+        if (orderRepository.updateStatus(List.of(id), current, OrderStatus.DELIVERED) == 0) {
+            return ResponseEntity.badRequest().body("订单已完成");
+        }
 
-        User user = userRepository.findByUsername(order.getUsername());
-        if (user != null) {
-            if (user.getPoints() == null)
-                user.setPoints(0);
-            user.setPoints(user.getPoints() + order.getTotalPrice().intValue());
-            userRepository.save(user);
-            return ResponseEntity.ok(user);
+        // 按 ID 原子累加积分，返回最新用户信息供前端刷新
+        userRepository.addPoints(currentUser.getUserId(), order.getTotalPrice().intValue());
+        UserProfileVO profile = userProfileService.getProfile(currentUser.getUserId());
+        if (profile != null) {
+            return ResponseEntity.ok(profile);
         }
         return ResponseEntity.ok("操作成功");
     }
 
+    /**
+     * 只返回当前登录用户的订单，不再接受 username 参数
+     */
     @GetMapping("/orders")
-    public List<OrderRecord> getMyOrders(@RequestParam String username) {
-        return orderRepository.findByUsernameOrderByCreateTimeDesc(username);
+    public List<OrderRecord> getMyOrders(@CurrentUser AuthUser currentUser) {
+        return orderService.getMyOrders(currentUser.getUsername());
     }
 
     @GetMapping("/recommend")
     public List<Product> getDailyRecommendations() {
-        return productRepository.findRandomRecommendations();
+        return recommendationSampler.recommend(DAILY_RECOMMEND_COUNT);
     }
 }
\ No newline at end of file
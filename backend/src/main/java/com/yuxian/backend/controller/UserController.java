@@ -1,7 +1,14 @@
 package com.yuxian.backend.controller;
 
+import com.yuxian.backend.config.AuthUser;
+import com.yuxian.backend.config.CurrentUser;
+import com.yuxian.backend.dto.UserProfileVO;
 import com.yuxian.backend.entity.User;
 import com.yuxian.backend.repository.UserRepository;
+import com.yuxian.backend.service.LoginRateLimiter;
+import com.yuxian.backend.service.PasswordHashingService;
+import com.yuxian.backend.service.UserProfileService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.File;
@@ -14,7 +21,6 @@ import java.util.Map;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import com.yuxian.backend.utils.JwtUtils;
 
 @RestController
@@ -22,20 +28,27 @@ import com.yuxian.backend.utils.JwtUtils;
 public class UserController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginRateLimiter loginRateLimiter;
     private final JwtUtils jwtUtils;
     private final com.yuxian.backend.repository.PointLogRepository pointLogRepository;
+    private final UserProfileService userProfileService;
 
-    public UserController(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtils jwtUtils,
-            com.yuxian.backend.repository.PointLogRepository pointLogRepository) {
+    public UserController(UserRepository userRepository, PasswordHashingService passwordHashingService,
+            LoginRateLimiter loginRateLimiter, JwtUtils jwtUtils,
+            com.yuxian.backend.repository.PointLogRepository pointLogRepository,
+            UserProfileService userProfileService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.loginRateLimiter = loginRateLimiter;
         this.jwtUtils = jwtUtils;
         this.pointLogRepository = pointLogRepository;
+        this.userProfileService = userProfileService;
     }
 
     @PostMapping("/register")
-    public Map<String, Object> register(@RequestBody User user) {
+    public Map<String, Object> register(@RequestBody User user, HttpServletRequest request) {
+        loginRateLimiter.acquire(null, request.getRemoteAddr());
         Map<String, Object> response = new HashMap<>();
 
         String regex = "^[a-zA-Z0-9]{4,20}$";
@@ -55,7 +68,7 @@ public class UserController {
             user.setDisplayName("会员" + user.getUsername());
         }
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
 
         userRepository.save(user);
         response.put("success", true);
@@ -64,72 +77,86 @@ public class UserController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody User loginUser) {
+    public ResponseEntity<?> login(@RequestBody User loginUser, HttpServletRequest request) {
+        loginRateLimiter.acquire(loginUser.getUsername(), request.getRemoteAddr());
         User user = userRepository.findByUsername(loginUser.getUsername());
-        if (user == null || !passwordEncoder.matches(loginUser.getPassword(), user.getPassword())) {
+        if (user == null || !passwordHashingService.matches(user.getUsername(), loginUser.getPassword(),
+                user.getPassword())) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("用户名或密码错误");
         }
         String token = jwtUtils.generateToken(user.getUsername());
 
         Map<String, Object> response = new HashMap<>();
-        response.put("user", user);
+        response.put("user", userProfileService.getProfile(user));
         response.put("role", user.getRole());
         response.put("token", token);
 
         return ResponseEntity.ok(response);
     }
 
-    @PostMapping("/address")
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwtUtils.revokeToken(authHeader.substring(7));
+        }
+        return ResponseEntity.ok("已退出登录");
+    }
+
+    /**
+     * 修改密码，成功后此前签发的所有 Token 立即失效，需要重新登录
+     */
+    @PostMapping("/password")
     @Transactional
-    public ResponseEntity<?> updateAddress(@RequestBody User userWithAddress) {
-        String currentUsername = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
-        User user = userRepository.findByUsername(currentUsername);
-
-        if (user != null) {
-            user.getAddresses().clear();
-            if (userWithAddress.getAddresses() != null) {
-                userWithAddress.getAddresses().forEach(addr -> addr.setId(null));
-                user.getAddresses().addAll(userWithAddress.getAddresses());
-            }
-            User savedUser = userRepository.save(user);
-            return ResponseEntity.ok(savedUser);
+    public ResponseEntity<?> changePassword(@RequestBody Map<String, String> body,
+            @CurrentUser AuthUser currentUser) {
+        String oldPassword = body.get("oldPassword");
+        String newPassword = body.get("newPassword");
+        if (newPassword == null || newPassword.length() < 6) {
+            return ResponseEntity.badRequest().body("新密码至少6位");
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("用户不存在");
+
+        User user = userRepository.findById(currentUser.getUserId()).orElse(null);
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("用户不存在");
+        }
+        if (!passwordHashingService.matches(user.getUsername(), oldPassword, user.getPassword())) {
+            return ResponseEntity.badRequest().body("原密码错误");
+        }
+
+        user.setPassword(passwordHashingService.encode(newPassword));
+        userRepository.save(user);
+        passwordHashingService.forget(currentUser.getUsername());
+        jwtUtils.revokeAllFor(currentUser.getUsername());
+        return ResponseEntity.ok("密码已修改，请重新登录");
+    }
+
+    @PostMapping("/address")
+    public ResponseEntity<?> updateAddress(@RequestBody UserProfileVO userWithAddress,
+            @CurrentUser AuthUser currentUser) {
+        return ResponseEntity.ok(userProfileService.replaceAddresses(currentUser.getUserId(),
+                userWithAddress.getAddresses()));
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser() {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
-        User user = userRepository.findByUsername(username);
+    public ResponseEntity<?> getCurrentUser(@CurrentUser AuthUser currentUser) {
+        UserProfileVO profile = userProfileService.getProfile(currentUser.getUserId());
 
-        if (user != null) {
-            return ResponseEntity.ok(user);
+        if (profile != null) {
+            return ResponseEntity.ok(profile);
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("用户不存在");
     }
 
     @PostMapping("/signin")
     @Transactional
-    public ResponseEntity<?> signIn() {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
-        User user = userRepository.findByUsername(username);
-
-        if (user == null)
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("用户不存在");
-
-        java.time.LocalDate today = java.time.LocalDate.now();
-        if (today.equals(user.getLastSignInDate())) {
+    public ResponseEntity<?> signIn(@CurrentUser AuthUser currentUser) {
+        String username = currentUser.getUsername();
+        int reward = 10;
+        // 条件更新：当天已签到则不更新，并发重复签到只有一次生效
+        if (userRepository.signIn(currentUser.getUserId(), java.time.LocalDate.now(), reward) == 0) {
             return ResponseEntity.badRequest().body("今日已签到");
         }
 
-        user.setLastSignInDate(today);
-        int reward = 10;
-        user.setPoints((user.getPoints() == null ? 0 : user.getPoints()) + reward);
-        userRepository.save(user);
-
         com.yuxian.backend.entity.PointLog log = new com.yuxian.backend.entity.PointLog();
         log.setUsername(username);
         log.setType(1);
@@ -139,22 +166,19 @@ public class UserController {
 
         Map<String, Object> res = new HashMap<>();
         res.put("success", true);
-        res.put("points", user.getPoints());
+        res.put("points", userRepository.findPointsById(currentUser.getUserId()));
         res.put("reward", reward);
         return ResponseEntity.ok(res);
     }
 
     @GetMapping("/point-logs")
-    public ResponseEntity<List<com.yuxian.backend.entity.PointLog>> getPointLogs() {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
-        return ResponseEntity.ok(pointLogRepository.findByUsernameOrderByCreateTimeDesc(username));
+    public ResponseEntity<List<com.yuxian.backend.entity.PointLog>> getPointLogs(@CurrentUser AuthUser currentUser) {
+        return ResponseEntity.ok(pointLogRepository.findByUsernameOrderByCreateTimeDesc(currentUser.getUsername()));
     }
 
     @PostMapping("/upload-avatar")
-    public ResponseEntity<?> uploadAvatar(@RequestParam("file") MultipartFile file) {
-        String username = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
+    public ResponseEntity<?> uploadAvatar(@RequestParam("file") MultipartFile file,
+            @CurrentUser AuthUser currentUser) {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body("文件不能为空");
         }
@@ -178,13 +202,7 @@ public class UserController {
 
             String avatarUrl = "/images/avatars/" + fileName;
 
-            User user = userRepository.findByUsername(username);
-            if (user != null) {
-                user.setAvatar(avatarUrl);
-                userRepository.save(user);
-                return ResponseEntity.ok(user);
-            }
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("用户不存在");
+            return ResponseEntity.ok(userProfileService.updateAvatar(currentUser.getUserId(), avatarUrl));
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -193,20 +211,16 @@ public class UserController {
     }
 
     @GetMapping("/info")
-    public ResponseEntity<?> getUserInfo(@RequestParam(required = false) String username) {
-        String currentUsername = org.springframework.security.core.context.SecurityContextHolder.getContext()
-                .getAuthentication().getName();
-
-        if (username != null && !username.isEmpty()) {
-            if (!currentUsername.equals(username)) {
-                User currentUser = userRepository.findByUsername(currentUsername);
-                if (currentUser == null || !"ADMIN".equals(currentUser.getRole())) {
-                    return ResponseEntity.status(403).body("无权查看他人信息");
-                }
-                return ResponseEntity.ok(userRepository.findByUsername(username));
+    public ResponseEntity<?> getUserInfo(@RequestParam(required = false) String username,
+            @CurrentUser AuthUser currentUser) {
+        if (username != null && !username.isEmpty() && !currentUser.getUsername().equals(username)) {
+            if (!currentUser.isAdmin()) {
+                return ResponseEntity.status(403).body("无权查看他人信息");
             }
+            User user = userRepository.findByUsername(username);
+            return ResponseEntity.ok(user == null ? null : userProfileService.getProfile(user));
         }
 
-        return ResponseEntity.ok(userRepository.findByUsername(currentUsername));
+        return ResponseEntity.ok(userProfileService.getProfile(currentUser.getUserId()));
     }
 }
\ No newline at end of file
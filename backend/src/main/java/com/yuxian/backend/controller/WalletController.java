@@ -1,10 +1,10 @@
 package com.yuxian.backend.controller;
 
+import com.yuxian.backend.config.AuthUser;
+import com.yuxian.backend.config.CurrentUser;
 import com.yuxian.backend.entity.WalletLog;
 import com.yuxian.backend.repository.WalletLogRepository;
-import com.yuxian.backend.repository.UserRepository;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
@@ -13,19 +13,14 @@ import java.util.List;
 public class WalletController {
 
     private final WalletLogRepository walletLogRepository;
-    private final UserRepository userRepository;
 
-    public WalletController(WalletLogRepository walletLogRepository, UserRepository userRepository) {
+    public WalletController(WalletLogRepository walletLogRepository) {
         this.walletLogRepository = walletLogRepository;
-        this.userRepository = userRepository;
     }
 
     @GetMapping("/logs")
-    public ResponseEntity<List<WalletLog>> getMyLogs() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Long userId = userRepository.findByUsername(username).getId();
-
-        List<WalletLog> logs = walletLogRepository.findByUserIdOrderByCreateTimeDesc(userId);
+    public ResponseEntity<List<WalletLog>> getMyLogs(@CurrentUser AuthUser currentUser) {
+        List<WalletLog> logs = walletLogRepository.findByUserIdOrderByCreateTimeDesc(currentUser.getUserId());
         return ResponseEntity.ok(logs);
     }
 }
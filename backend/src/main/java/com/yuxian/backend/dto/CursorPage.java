@@ -0,0 +1,20 @@
+package com.yuxian.backend.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页结果，nextCursor 为空表示没有下一页
+ */
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+}
@@ -0,0 +1,53 @@
+package com.yuxian.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步下单受理单状态，不可变；状态变化时整体替换
+ */
+public class OrderIntakeStatus {
+
+    public static final String PENDING = "PENDING";
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+
+    private final String ticket;
+    private final String username;
+    private final String status;
+    private final Long orderId;
+    private final String message;
+    private final LocalDateTime createTime;
+    private final LocalDateTime finishTime;
+
+    public OrderIntakeStatus(String ticket, String username, String status, Long orderId, String message,
+            LocalDateTime createTime, LocalDateTime finishTime) {
+        this.ticket = ticket;
+        this.username = username;
+        this.status = status;
+        this.orderId = orderId;
+        this.message = message;
+        this.createTime = createTime;
+        this.finishTime = finishTime;
+    }
+
+    public OrderIntakeStatus succeed(Long orderId) {
+        return new OrderIntakeStatus(ticket, username, SUCCESS, orderId, "订单已创建，请前往支付", createTime,
+                LocalDateTime.now());
+    }
+
+    public OrderIntakeStatus fail(String message) {
+        return new OrderIntakeStatus(ticket, username, FAILED, null, message, createTime, LocalDateTime.now());
+    }
+
+    public String getTicket() { return ticket; }
+    @JsonIgnore
+    public String getUsername() { return username; }
+    public String getStatus() { return status; }
+    public Long getOrderId() { return orderId; }
+    public String getMessage() { return message; }
+    public LocalDateTime getCreateTime() { return createTime; }
+    public LocalDateTime getFinishTime() { return finishTime; }
+    public boolean isSuccess() { return SUCCESS.equals(status); }
+}
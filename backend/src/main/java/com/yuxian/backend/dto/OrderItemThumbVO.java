@@ -0,0 +1,29 @@
+package com.yuxian.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * 订单列表中的商品缩略信息
+ */
+public class OrderItemThumbVO {
+    private Long orderId;
+    private Long productId;
+    private String productName;
+    private String imageUrl;
+    private Integer quantity;
+
+    public OrderItemThumbVO(Long orderId, Long productId, String productName, String imageUrl, Integer quantity) {
+        this.orderId = orderId;
+        this.productId = productId;
+        this.productName = productName;
+        this.imageUrl = imageUrl;
+        this.quantity = quantity;
+    }
+
+    @JsonIgnore
+    public Long getOrderId() { return orderId; }
+    public Long getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    public String getImageUrl() { return imageUrl; }
+    public Integer getQuantity() { return quantity; }
+}
@@ -0,0 +1,36 @@
+package com.yuxian.backend.dto;
+
+import com.yuxian.backend.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单列表摘要，不含收货信息；商品只带缩略图所需字段（{@link OrderItemThumbVO}）
+ */
+public class OrderSummaryVO {
+    private Long id;
+    private OrderStatus status;
+    private BigDecimal totalPrice;
+    private LocalDateTime createTime;
+    private String productNames;
+    private List<OrderItemThumbVO> items = new ArrayList<>();
+
+    public OrderSummaryVO(Long id, OrderStatus status, BigDecimal totalPrice, LocalDateTime createTime,
+            String productNames) {
+        this.id = id;
+        this.status = status;
+        this.totalPrice = totalPrice;
+        this.createTime = createTime;
+        this.productNames = productNames;
+    }
+
+    public Long getId() { return id; }
+    public OrderStatus getStatus() { return status; }
+    public BigDecimal getTotalPrice() { return totalPrice; }
+    public LocalDateTime getCreateTime() { return createTime; }
+    public String getProductNames() { return productNames; }
+    public List<OrderItemThumbVO> getItems() { return items; }
+}
@@ -0,0 +1,29 @@
+package com.yuxian.backend.dto;
+
+/**
+ * 批量售后审核中单个订单的处理结果
+ */
+public class RefundAuditResult {
+
+    private final Long orderId;
+    private final boolean success;
+    private final String message;
+
+    private RefundAuditResult(Long orderId, boolean success, String message) {
+        this.orderId = orderId;
+        this.success = success;
+        this.message = message;
+    }
+
+    public static RefundAuditResult ok(Long orderId, String message) {
+        return new RefundAuditResult(orderId, true, message);
+    }
+
+    public static RefundAuditResult fail(Long orderId, String message) {
+        return new RefundAuditResult(orderId, false, message);
+    }
+
+    public Long getOrderId() { return orderId; }
+    public boolean isSuccess() { return success; }
+    public String getMessage() { return message; }
+}
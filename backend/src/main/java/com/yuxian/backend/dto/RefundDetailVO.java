@@ -1,5 +1,7 @@
 package com.yuxian.backend.dto;
 
+import com.yuxian.backend.entity.OrderStatus;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -8,11 +10,11 @@ public class RefundDetailVO {
     private String username;
     private BigDecimal amount;
     private String reason;
-    private String status;
+    private OrderStatus status;
     private String productNames;
     private LocalDateTime applyTime;
 
-    public RefundDetailVO(Long orderId, String username, BigDecimal amount, String reason, String status, String productNames, LocalDateTime applyTime) {
+    public RefundDetailVO(Long orderId, String username, BigDecimal amount, String reason, OrderStatus status, String productNames, LocalDateTime applyTime) {
         this.orderId = orderId;
         this.username = username;
         this.amount = amount;
@@ -30,8 +32,8 @@ public class RefundDetailVO {
     public void setAmount(BigDecimal amount) { this.amount = amount; }
     public String getReason() { return reason; }
     public void setReason(String reason) { this.reason = reason; }
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public OrderStatus getStatus() { return status; }
+    public void setStatus(OrderStatus status) { this.status = status; }
     public String getProductNames() { return productNames; }
     public void setProductNames(String productNames) { this.productNames = productNames; }
     public LocalDateTime getApplyTime() { return applyTime; }
@@ -0,0 +1,61 @@
+package com.yuxian.backend.dto;
+
+import com.yuxian.backend.entity.Address;
+import com.yuxian.backend.entity.User;
+import com.yuxian.backend.entity.UserProfile;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 完整的用户资料：账号核心行 + 头像 + 收货地址，字段与原 User 的 JSON 保持一致
+ * 也作为更新收货地址接口的请求体
+ */
+public class UserProfileVO {
+    private Long id;
+    private String username;
+    private String displayName;
+    private String role;
+    private Integer points;
+    private BigDecimal balance;
+    private LocalDate lastSignInDate;
+    private String avatar;
+    private List<Address> addresses;
+
+    public UserProfileVO() {
+    }
+
+    public static UserProfileVO of(User user, UserProfile profile, List<Address> addresses) {
+        UserProfileVO vo = new UserProfileVO();
+        vo.id = user.getId();
+        vo.username = user.getUsername();
+        vo.displayName = user.getDisplayName();
+        vo.role = user.getRole();
+        vo.points = user.getPoints();
+        vo.balance = user.getBalance();
+        vo.lastSignInDate = user.getLastSignInDate();
+        vo.avatar = profile != null ? profile.getAvatar() : null;
+        vo.addresses = addresses;
+        return vo;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public String getDisplayName() { return displayName; }
+    public void setDisplayName(String displayName) { this.displayName = displayName; }
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
+    public Integer getPoints() { return points; }
+    public void setPoints(Integer points) { this.points = points; }
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+    public LocalDate getLastSignInDate() { return lastSignInDate; }
+    public void setLastSignInDate(LocalDate lastSignInDate) { this.lastSignInDate = lastSignInDate; }
+    public String getAvatar() { return avatar; }
+    public void setAvatar(String avatar) { this.avatar = avatar; }
+    public List<Address> getAddresses() { return addresses; }
+    public void setAddresses(List<Address> addresses) { this.addresses = addresses; }
+}
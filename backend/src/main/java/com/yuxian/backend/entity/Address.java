@@ -1,15 +1,19 @@
 package com.yuxian.backend.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "user_addresses")
+@Table(name = "user_addresses", indexes = @Index(name = "idx_address_user", columnList = "user_id"))
 public class Address {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    @JsonIgnore
+    @Column(name = "user_id")
+    private Long userId;
     private String contact;
     private String phone;
     private String detail;
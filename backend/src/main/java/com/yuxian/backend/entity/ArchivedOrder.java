@@ -0,0 +1,43 @@
+package com.yuxian.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 归档订单：已完结且超过保留期的订单从 order_record / order_item 整体移入此表，
+ * 订单明细以 JSON 数组保存在 itemsJson 中，ID 沿用原订单ID
+ */
+@Data
+@Entity
+@Table(name = "order_archive", indexes = {
+        @Index(name = "idx_archive_user_time", columnList = "username, createTime"),
+        @Index(name = "idx_archive_status_time", columnList = "status_code, createTime")
+})
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    private String username;
+
+    @Column(name = "status_code")
+    private OrderStatus status;
+
+    private BigDecimal totalPrice;
+
+    private LocalDateTime createTime;
+
+    private String productNames;
+
+    private String receiverName;
+    private String receiverPhone;
+    private String receiverAddress;
+
+    @Column(columnDefinition = "LONGTEXT")
+    private String itemsJson;
+
+    private LocalDateTime archiveTime;
+}
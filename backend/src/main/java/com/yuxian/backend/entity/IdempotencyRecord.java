@@ -0,0 +1,35 @@
+package com.yuxian.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 幂等请求的已完成响应，开启持久化时写入，重启或多实例时仍可重放
+ */
+@Data
+@Entity
+@Table(name = "idempotency_records", indexes = {
+        @Index(name = "idx_idempotency_create_time", columnList = "createTime")
+})
+public class IdempotencyRecord {
+
+    /** 用户名:操作:Idempotency-Key */
+    @Id
+    @Column(length = 255)
+    private String scopeKey;
+
+    @Column(length = 64)
+    private String fingerprint;
+
+    private Integer statusCode;
+
+    private String contentType;
+
+    @Lob
+    @Column(columnDefinition = "BLOB")
+    private byte[] body;
+
+    private LocalDateTime createTime;
+}
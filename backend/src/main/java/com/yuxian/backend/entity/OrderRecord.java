@@ -8,9 +8,13 @@ import java.math.BigDecimal;
 
 @Data
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_order_user_time", columnList = "username, createTime, id"),
+        @Index(name = "idx_order_status_time", columnList = "status_code, createTime")
+})
 public class OrderRecord {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     private String username;
@@ -19,17 +23,29 @@ public class OrderRecord {
     private List<OrderItem> items;
 
     private BigDecimal totalPrice;
-    private String status;
+    /** 旧版本的 status 字符串列由 OrderStatusMigration 迁移到 status_code */
+    @Column(name = "status_code")
+    private OrderStatus status;
     private LocalDateTime createTime;
 
     private String productNames;
 
+    /** 是否来自归档表；归档订单只读，前端据此隐藏删除、售后等操作 */
+    @Transient
+    private boolean archived;
+
     public BigDecimal getTotalAmount() {
         return this.totalPrice;
     }
 
-    public void setStatus(String status) {
-        this.status = status;
+    /**
+     * 按状态机流转，不允许的变更抛出异常
+     */
+    public void transitionTo(OrderStatus next) {
+        if (status != null && !status.canTransitionTo(next)) {
+            throw new RuntimeException("订单当前状态为「" + status.getLabel() + "」，不能变更为「" + next.getLabel() + "」");
+        }
+        this.status = next;
     }
 
     private String receiverName;
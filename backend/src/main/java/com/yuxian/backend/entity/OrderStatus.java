@@ -0,0 +1,114 @@
+package com.yuxian.backend.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 订单状态
+ * 数据库中存小整数 code（见 {@link OrderStatusConverter}），接口上仍输出原来的状态文字，前端无需改动。
+ * 状态只能按 {@link #canTransitionTo} 规定的方向流转；管理员另有 {@link #canAdminOverride} 规定的人工干预。
+ */
+public enum OrderStatus {
+
+    UNPAID(0, "UNPAID"),
+    PAID(10, "PAID", "待发货"),
+    SHIPPED(20, "SHIPPED", "运输中"),
+    DELIVERED(30, "已送达", "DELIVERED"),
+    REFUND_PENDING(40, "售后处理中", "PENDING_REFUND"),
+    REFUNDED(50, "退款成功", "REFUNDED", "已退货"),
+    CANCELLED(90, "CANCELLED");
+
+    /** 计入销售额的状态 */
+    public static final Set<OrderStatus> REVENUE = EnumSet.of(PAID, SHIPPED, DELIVERED);
+
+    /** 不计入商品销量的状态 */
+    public static final Set<OrderStatus> UNSOLD = EnumSet.of(UNPAID, CANCELLED);
+
+    private final int code;
+    private final String label;
+    private final List<String> aliases;
+
+    OrderStatus(int code, String label, String... aliases) {
+        this.code = code;
+        this.label = label;
+        this.aliases = List.of(aliases);
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    @JsonValue
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 历史数据和前端使用过的全部写法，迁移旧数据时使用
+     */
+    public List<String> getAliases() {
+        return aliases;
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        switch (this) {
+            case UNPAID:
+                return next == PAID || next == CANCELLED;
+            case PAID:
+                return next == SHIPPED || next == DELIVERED;
+            case SHIPPED:
+                return next == DELIVERED;
+            case DELIVERED:
+                return next == REFUND_PENDING;
+            case REFUND_PENDING:
+                // 审核通过退款，驳回则回到已送达
+                return next == REFUNDED || next == DELIVERED;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 管理员在正常流转之外还可以：取消未完成的订单，或直接将已支付的订单退款
+     */
+    public boolean canAdminOverride(OrderStatus next) {
+        if (canTransitionTo(next)) {
+            return true;
+        }
+        switch (this) {
+            case PAID:
+            case SHIPPED:
+                return next == CANCELLED || next == REFUNDED;
+            case DELIVERED:
+                return next == REFUNDED;
+            default:
+                return false;
+        }
+    }
+
+    public static OrderStatus fromCode(int code) {
+        for (OrderStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("未知的订单状态码: " + code);
+    }
+
+    /**
+     * 解析枚举名、状态文字或历史别名
+     */
+    @JsonCreator
+    public static OrderStatus parse(String value) {
+        for (OrderStatus status : values()) {
+            if (status.name().equals(value) || status.label.equals(value) || status.aliases.contains(value)) {
+                return status;
+            }
+        }
+        throw new RuntimeException("未知的订单状态: " + value);
+    }
+}
@@ -0,0 +1,47 @@
+package com.yuxian.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待推送的 WebSocket 通知，与业务数据在同一事务内写入，提交后由后台分发
+ */
+@Data
+@Entity
+@Table(name = "outbox_messages", indexes = {
+        @Index(name = "idx_outbox_status_next", columnList = "status, nextAttemptTime, id"),
+        @Index(name = "idx_outbox_recipient", columnList = "recipient, status")
+})
+public class OutboxMessage {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    /** 用户不在线，按原有语义直接丢弃 */
+    public static final String SKIPPED = "SKIPPED";
+    /** 重试次数用尽 */
+    public static final String DEAD = "DEAD";
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    /** 接收用户名；为空表示广播给在线管理员 */
+    @Column(length = 50)
+    private String recipient;
+
+    @Column(length = 1000)
+    private String payload;
+
+    @Column(length = 16)
+    private String status;
+
+    private Integer attempts;
+
+    private LocalDateTime nextAttemptTime;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime sentTime;
+}
@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 public class PointLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     private String username;
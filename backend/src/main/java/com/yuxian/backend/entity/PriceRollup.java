@@ -0,0 +1,27 @@
+package com.yuxian.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 商品每日收盘价汇总，环形保存最近 366 天（每天 4 字节，单位：分）
+ * 7 天、30 天、1 年（按周降采样）走势均由此读取，不扫描原始记录。
+ */
+@Data
+@Entity
+@Table(name = "price_rollups")
+public class PriceRollup {
+
+    @Id
+    private Long productId;
+
+    private Long firstDay;
+    private Long lastDay;
+
+    @Lob
+    @Column(columnDefinition = "BLOB")
+    private byte[] dailyCloses;
+
+    @Version
+    private Integer version;
+}
@@ -0,0 +1,36 @@
+package com.yuxian.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 商品价格原始变更记录（按商品分块、只追加）
+ * 时间与价格分两列存储，均为相对上一点的差值 varint 编码；写满后封块，新建下一块。
+ */
+@Data
+@Entity
+@Table(name = "price_series_chunks", indexes = @Index(name = "idx_price_chunk_product", columnList = "productId, startEpochSecond"))
+public class PriceSeriesChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private Long startEpochSecond;
+    private Long firstPriceCents;
+    private Long lastEpochSecond;
+    private Long lastPriceCents;
+    private Integer pointCount;
+    private Boolean sealed = false;
+
+    @Lob
+    @Column(columnDefinition = "BLOB")
+    private byte[] timeDeltas;
+
+    @Lob
+    @Column(columnDefinition = "BLOB")
+    private byte[] priceDeltas;
+}
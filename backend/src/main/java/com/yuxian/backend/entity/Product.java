@@ -1,9 +1,13 @@
 package com.yuxian.backend.entity;
 
+import com.yuxian.backend.event.ProductEntityListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 import lombok.Data;
 import java.time.LocalDate;
@@ -11,6 +15,11 @@ import java.math.BigDecimal;
 
 @Data 
 @Entity
+@EntityListeners(ProductEntityListener.class)
+@Table(indexes = {
+        @Index(name = "idx_product_list_date", columnList = "listDate, id"),
+        @Index(name = "idx_product_category_list_date", columnList = "category, listDate, id")
+})
 public class Product {
 
     @Id
@@ -3,8 +3,11 @@ package com.yuxian.backend.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.List;
 
+/**
+ * 账号核心行：认证、签到、支付、积分等高频路径只加载这一张窄表
+ * 头像见 {@link UserProfile}，收货地址见 {@link Address}，由 UserProfileService 按需组装
+ */
 @Data
 @Entity
 @Table(name = "users")
@@ -24,16 +27,8 @@ public class User {
 
     private String displayName;
 
-    @Lob
-    @Column(columnDefinition = "LONGTEXT")
-    private String avatar;
-
     private String role = "USER";
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
-    @JoinColumn(name = "user_id")
-    private List<Address> addresses;
-
     private Integer points = 0;
 
     @Column(precision = 19, scale = 2)
@@ -43,4 +38,4 @@ public class User {
     private Integer version = 0;
 
     private java.time.LocalDate lastSignInDate;
-}
\ No newline at end of file
+}
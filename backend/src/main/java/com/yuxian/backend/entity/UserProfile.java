@@ -0,0 +1,20 @@
+package com.yuxian.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 用户资料中体积较大的部分，与账号核心行分开存放，只在展示资料时加载
+ */
+@Data
+@Entity
+@Table(name = "user_profiles")
+public class UserProfile {
+
+    @Id
+    private Long userId;
+
+    @Lob
+    @Column(columnDefinition = "LONGTEXT")
+    private String avatar;
+}
@@ -11,7 +11,7 @@ import java.time.LocalDateTime;
 public class WalletLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,48 @@
+package com.yuxian.backend.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单生命周期事件
+ * 订单创建、支付、关闭（取消/删除）时发布，提交后由超时调度等组件处理。
+ */
+public class OrderLifecycleEvent {
+
+    public enum Type {
+        CREATED, PAID, CLOSED
+    }
+
+    private final Long orderId;
+    private final Type type;
+    private final LocalDateTime createTime;
+
+    private OrderLifecycleEvent(Long orderId, Type type, LocalDateTime createTime) {
+        this.orderId = orderId;
+        this.type = type;
+        this.createTime = createTime;
+    }
+
+    public static OrderLifecycleEvent created(Long orderId, LocalDateTime createTime) {
+        return new OrderLifecycleEvent(orderId, Type.CREATED, createTime);
+    }
+
+    public static OrderLifecycleEvent paid(Long orderId) {
+        return new OrderLifecycleEvent(orderId, Type.PAID, null);
+    }
+
+    public static OrderLifecycleEvent closed(Long orderId) {
+        return new OrderLifecycleEvent(orderId, Type.CLOSED, null);
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+}
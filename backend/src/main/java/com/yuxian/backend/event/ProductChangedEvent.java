@@ -0,0 +1,47 @@
+package com.yuxian.backend.event;
+
+/**
+ * 商品变更事件
+ * 由 {@link ProductEntityListener}（实体写入）和库存扣减/回滚处发布，
+ * 内存中的商品快照、索引等组件据此失效或重建。
+ */
+public class ProductChangedEvent {
+
+    public enum Type {
+        SAVED, DELETED, STOCK
+    }
+
+    private final Long productId;
+    private final Type type;
+    private final int stockDelta;
+
+    private ProductChangedEvent(Long productId, Type type, int stockDelta) {
+        this.productId = productId;
+        this.type = type;
+        this.stockDelta = stockDelta;
+    }
+
+    public static ProductChangedEvent saved(Long productId) {
+        return new ProductChangedEvent(productId, Type.SAVED, 0);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(productId, Type.DELETED, 0);
+    }
+
+    public static ProductChangedEvent stock(Long productId, int stockDelta) {
+        return new ProductChangedEvent(productId, Type.STOCK, stockDelta);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getStockDelta() {
+        return stockDelta;
+    }
+}
@@ -0,0 +1,33 @@
+package com.yuxian.backend.event;
+
+import com.yuxian.backend.entity.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Product 实体监听器：把 JPA 写入转换为 {@link ProductChangedEvent}
+ * 注意：JPQL 批量 UPDATE（如 decreaseStock）不会触发此监听器，库存变更由调用方自行发布事件。
+ */
+@Component
+public class ProductEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void afterSave(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.saved(product.getId()));
+    }
+
+    @PostRemove
+    public void afterRemove(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(product.getId()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.yuxian.backend.event;
+
+/**
+ * 用户变更事件
+ * 角色、积分等账号信息被管理员修改或用户被删除时发布，认证缓存据此失效。
+ */
+public class UserChangedEvent {
+
+    private final String username;
+
+    public UserChangedEvent(String username) {
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
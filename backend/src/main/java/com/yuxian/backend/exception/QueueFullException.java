@@ -0,0 +1,18 @@
+package com.yuxian.backend.exception;
+
+/**
+ * 受理队列已满或触发限流，由全局异常处理转换为 429
+ */
+public class QueueFullException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public QueueFullException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,18 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.Address;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface AddressRepository extends JpaRepository<Address, Long> {
+
+    List<Address> findByUserIdOrderByIdAsc(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM Address a WHERE a.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
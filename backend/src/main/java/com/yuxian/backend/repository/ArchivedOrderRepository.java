@@ -0,0 +1,30 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.ArchivedOrder;
+import com.yuxian.backend.entity.OrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    List<ArchivedOrder> findByUsernameOrderByCreateTimeDesc(String username);
+
+    Page<ArchivedOrder> findAllByOrderByCreateTimeDesc(Pageable pageable);
+
+    Page<ArchivedOrder> findByUsernameContainingOrderByCreateTimeDesc(String username, Pageable pageable);
+
+    Page<ArchivedOrder> findByStatusOrderByCreateTimeDesc(OrderStatus status, Pageable pageable);
+
+    Page<ArchivedOrder> findByUsernameContainingAndStatusOrderByCreateTimeDesc(String username, OrderStatus status,
+            Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(a.totalPrice), 0.00) FROM ArchivedOrder a WHERE a.status IN :statuses")
+    BigDecimal sumTotalPrice(@Param("statuses") Collection<OrderStatus> statuses);
+}
@@ -1,32 +1,116 @@
 package com.yuxian.backend.repository;
 
+import com.yuxian.backend.dto.OrderItemThumbVO;
+import com.yuxian.backend.dto.OrderSummaryVO;
+import com.yuxian.backend.dto.RefundDetailVO;
 import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.math.BigDecimal;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface OrderRepository extends JpaRepository<OrderRecord, Long> {
+public interface OrderRepository extends JpaRepository<OrderRecord, Long>, OrderRepositoryCustom {
 
     List<OrderRecord> findByUsernameOrderByCreateTimeDesc(String username);
 
     Page<OrderRecord> findByUsernameContainingOrderByCreateTimeDesc(String username, Pageable pageable);
 
-    Page<OrderRecord> findByStatusOrderByCreateTimeDesc(String status, Pageable pageable);
+    Page<OrderRecord> findByStatusOrderByCreateTimeDesc(OrderStatus status, Pageable pageable);
 
-    Page<OrderRecord> findByUsernameContainingAndStatusOrderByCreateTimeDesc(String username, String status,
+    Page<OrderRecord> findByUsernameContainingAndStatusOrderByCreateTimeDesc(String username, OrderStatus status,
             Pageable pageable);
 
-    @Query("SELECT COALESCE(SUM(o.totalPrice), 0.00) FROM OrderRecord o WHERE o.status NOT IN ('UNPAID', 'CANCELLED', 'REFUNDED', 'PENDING_REFUND')")
-    BigDecimal sumTotalSales();
+    @Query("SELECT COALESCE(SUM(o.totalPrice), 0.00) FROM OrderRecord o WHERE o.status IN :statuses")
+    BigDecimal sumTotalSales(@Param("statuses") Collection<OrderStatus> statuses);
+
+    default BigDecimal sumTotalSales() {
+        return sumTotalSales(OrderStatus.REVENUE);
+    }
+
+    long countByStatus(OrderStatus status);
 
     List<OrderRecord> findByCreateTimeAfter(LocalDateTime time);
 
-    List<OrderRecord> findByStatusOrderByCreateTimeDesc(String status);
+    List<OrderRecord> findByStatusOrderByCreateTimeDesc(OrderStatus status);
+
+    List<OrderRecord> findByStatusAndCreateTimeBefore(OrderStatus status, LocalDateTime createTime);
+
+    @Query("SELECT o.id, o.createTime FROM OrderRecord o WHERE o.status = :status")
+    List<Object[]> findDeadlinesByStatus(@Param("status") OrderStatus status);
+
+    default List<Object[]> findUnpaidDeadlines() {
+        return findDeadlinesByStatus(OrderStatus.UNPAID);
+    }
+
+    @Query("SELECT o.id, o.createTime FROM OrderRecord o WHERE o.status = :status AND o.id IN :ids")
+    List<Object[]> findDeadlinesByStatusAndIdIn(@Param("status") OrderStatus status, @Param("ids") Collection<Long> ids);
+
+    default List<Object[]> findUnpaidDeadlines(Collection<Long> ids) {
+        return findDeadlinesByStatusAndIdIn(OrderStatus.UNPAID, ids);
+    }
+
+    @Query("SELECT o.id FROM OrderRecord o WHERE o.status = :status AND o.createTime < :cutoff AND o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") OrderStatus status, @Param("cutoff") LocalDateTime cutoff,
+            @Param("afterId") Long afterId, Pageable pageable);
+
+    default List<Long> findExpiredUnpaidIds(LocalDateTime cutoff, Long afterId, Pageable pageable) {
+        return findIdsByStatusCreatedBefore(OrderStatus.UNPAID, cutoff, afterId, pageable);
+    }
+
+    @Query("SELECT o.id FROM OrderRecord o WHERE o.status IN :statuses AND o.createTime < :cutoff AND o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsByStatusInCreatedBefore(@Param("statuses") Collection<OrderStatus> statuses,
+            @Param("cutoff") LocalDateTime cutoff, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 订单摘要按 (createTime, id) 倒序；没有创建时间的旧数据排在最后
+     */
+    @Query("SELECT new com.yuxian.backend.dto.OrderSummaryVO(o.id, o.status, o.totalPrice, o.createTime, o.productNames) "
+            + "FROM OrderRecord o WHERE o.username = :username ORDER BY o.createTime DESC NULLS LAST, o.id DESC")
+    List<OrderSummaryVO> findSummaries(@Param("username") String username, Pageable pageable);
+
+    @Query("SELECT new com.yuxian.backend.dto.OrderSummaryVO(o.id, o.status, o.totalPrice, o.createTime, o.productNames) "
+            + "FROM OrderRecord o WHERE o.username = :username "
+            + "AND (o.createTime < :createTime OR (o.createTime = :createTime AND o.id < :id) OR o.createTime IS NULL) "
+            + "ORDER BY o.createTime DESC NULLS LAST, o.id DESC")
+    List<OrderSummaryVO> findSummariesAfter(@Param("username") String username,
+            @Param("createTime") LocalDateTime createTime, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * 游标已进入没有创建时间的旧数据段时，按 ID 倒序继续
+     */
+    @Query("SELECT new com.yuxian.backend.dto.OrderSummaryVO(o.id, o.status, o.totalPrice, o.createTime, o.productNames) "
+            + "FROM OrderRecord o WHERE o.username = :username AND o.createTime IS NULL AND o.id < :id "
+            + "ORDER BY o.id DESC")
+    List<OrderSummaryVO> findUndatedSummariesAfter(@Param("username") String username, @Param("id") Long id,
+            Pageable pageable);
+
+    @Query("SELECT new com.yuxian.backend.dto.OrderItemThumbVO(i.order.id, i.productId, i.productName, i.imageUrl, i.quantity) "
+            + "FROM OrderItem i WHERE i.order.id IN :orderIds ORDER BY i.id")
+    List<OrderItemThumbVO> findItemThumbs(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * 售后工单列表：每个订单连接其最新一条售后反馈，一次查询返回；排序字段作用于订单别名 o
+     */
+    @Query(value = "SELECT new com.yuxian.backend.dto.RefundDetailVO(o.id, o.username, o.totalPrice, "
+            + "COALESCE(f.content, '无详细原因'), o.status, o.productNames, o.createTime) "
+            + "FROM OrderRecord o LEFT JOIN RefundFeedback f ON f.orderId = o.id "
+            + "WHERE o.status = :status "
+            + "AND (f.id IS NULL OR f.id = (SELECT MAX(f2.id) FROM RefundFeedback f2 WHERE f2.orderId = o.id))",
+            countQuery = "SELECT COUNT(o) FROM OrderRecord o WHERE o.status = :status")
+    Page<RefundDetailVO> findRefundDetails(@Param("status") OrderStatus status, Pageable pageable);
+
+    @Query("SELECT i.productId, SUM(i.quantity) FROM OrderItem i WHERE i.order.createTime >= :since AND i.order.status NOT IN :excluded GROUP BY i.productId")
+    List<Object[]> sumSalesByProductSince(@Param("since") LocalDateTime since,
+            @Param("excluded") Collection<OrderStatus> excluded);
 
-    List<OrderRecord> findByStatusAndCreateTimeBefore(String status, LocalDateTime createTime);
+    default List<Object[]> sumSalesByProductSince(LocalDateTime since) {
+        return sumSalesByProductSince(since, OrderStatus.UNSOLD);
+    }
 }
\ No newline at end of file
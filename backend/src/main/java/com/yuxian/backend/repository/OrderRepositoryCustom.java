@@ -0,0 +1,61 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * 对仍为待支付且创建时间不晚于 cutoff 的订单行加排他锁
+     *
+     * @return 订单ID -> 用户名，按ID升序
+     */
+    Map<Long, String> lockExpiredUnpaid(Collection<Long> orderIds, LocalDateTime cutoff);
+
+    /**
+     * 一条 UPDATE 将这批订单置为已取消
+     */
+    int markCancelled(Collection<Long> orderIds);
+
+    /**
+     * 汇总这批订单中各商品的购买数量，按商品ID升序
+     */
+    SortedMap<Long, Integer> sumItemQuantities(Collection<Long> orderIds);
+
+    /**
+     * 对仍在售后处理中的订单行加排他锁
+     *
+     * @return 每行为 {订单ID, 用户名, 订单金额}，按ID升序
+     */
+    List<Object[]> lockPendingRefunds(Collection<Long> orderIds);
+
+    /**
+     * 一条 UPDATE 将这批订单从 fromStatus 改为 toStatus，状态已变化的行不受影响
+     */
+    int updateStatus(Collection<Long> orderIds, OrderStatus fromStatus, OrderStatus toStatus);
+
+    /**
+     * 同 {@link #updateStatus}，但按管理员人工干预规则（{@link OrderStatus#canAdminOverride}）校验
+     */
+    int overrideStatus(Collection<Long> orderIds, OrderStatus fromStatus, OrderStatus toStatus);
+
+    /**
+     * 把旧 status 字符串列中尚未迁移的行换算成 status_code，每次最多 limit 行
+     *
+     * @return 本次迁移的行数；不存在旧列时返回 0
+     */
+    int migrateLegacyStatus(int limit);
+
+    /**
+     * 把这批订单中仍满足归档条件的行（状态在 statuses 中且创建时间早于 cutoff）移入 order_archive：
+     * 先加锁，再一条 INSERT ... SELECT 连同明细（聚合为 JSON）写入归档表，最后删除原订单及明细。需在事务内调用
+     *
+     * @return 实际归档的订单数
+     */
+    int archiveOrders(Collection<Long> orderIds, Collection<OrderStatus> statuses, LocalDateTime cutoff);
+}
@@ -0,0 +1,179 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.OrderStatus;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * OrderRepository 的自定义实现，批量取消等集合操作直接走 JDBC，不加载订单实体
+ */
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<Long, String> lockExpiredUnpaid(Collection<Long> orderIds, LocalDateTime cutoff) {
+        Map<Long, String> locked = new LinkedHashMap<>();
+        if (orderIds.isEmpty()) {
+            return locked;
+        }
+        List<Object> args = new ArrayList<>(orderIds);
+        args.add(OrderStatus.UNPAID.getCode());
+        args.add(Timestamp.valueOf(cutoff));
+        jdbcTemplate.query("SELECT id, username FROM order_record WHERE id IN (" + placeholders(orderIds.size())
+                + ") AND status_code = ? AND create_time <= ? ORDER BY id FOR UPDATE",
+                rs -> {
+                    locked.put(rs.getLong(1), rs.getString(2));
+                }, args.toArray());
+        return locked;
+    }
+
+    @Override
+    public int markCancelled(Collection<Long> orderIds) {
+        return updateStatus(orderIds, OrderStatus.UNPAID, OrderStatus.CANCELLED);
+    }
+
+    @Override
+    public SortedMap<Long, Integer> sumItemQuantities(Collection<Long> orderIds) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        if (orderIds.isEmpty()) {
+            return quantities;
+        }
+        jdbcTemplate.query("SELECT product_id, SUM(quantity) FROM order_item WHERE order_id IN ("
+                + placeholders(orderIds.size()) + ") GROUP BY product_id",
+                rs -> {
+                    quantities.put(rs.getLong(1), rs.getInt(2));
+                }, orderIds.toArray());
+        return quantities;
+    }
+
+    @Override
+    public List<Object[]> lockPendingRefunds(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> args = new ArrayList<>(orderIds);
+        args.add(OrderStatus.REFUND_PENDING.getCode());
+        return jdbcTemplate.query("SELECT id, username, total_price FROM order_record WHERE id IN ("
+                + placeholders(orderIds.size()) + ") AND status_code = ? ORDER BY id FOR UPDATE",
+                (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getString(2), rs.getBigDecimal(3) },
+                args.toArray());
+    }
+
+    @Override
+    public int updateStatus(Collection<Long> orderIds, OrderStatus fromStatus, OrderStatus toStatus) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        if (!fromStatus.canTransitionTo(toStatus)) {
+            throw new IllegalArgumentException("非法的订单状态变更: " + fromStatus + " -> " + toStatus);
+        }
+        return compareAndSetStatus(orderIds, fromStatus, toStatus);
+    }
+
+    @Override
+    public int overrideStatus(Collection<Long> orderIds, OrderStatus fromStatus, OrderStatus toStatus) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        if (!fromStatus.canAdminOverride(toStatus)) {
+            throw new IllegalArgumentException("非法的订单状态变更: " + fromStatus + " -> " + toStatus);
+        }
+        return compareAndSetStatus(orderIds, fromStatus, toStatus);
+    }
+
+    private int compareAndSetStatus(Collection<Long> orderIds, OrderStatus fromStatus, OrderStatus toStatus) {
+        List<Object> args = new ArrayList<>();
+        args.add(toStatus.getCode());
+        args.addAll(orderIds);
+        args.add(fromStatus.getCode());
+        return jdbcTemplate.update("UPDATE order_record SET status_code = ? WHERE id IN ("
+                + placeholders(orderIds.size()) + ") AND status_code = ?", args.toArray());
+    }
+
+    @Override
+    public int migrateLegacyStatus(int limit) {
+        Integer legacyColumns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = 'order_record' AND column_name = 'status'",
+                Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return 0;
+        }
+        StringBuilder cases = new StringBuilder("CASE status");
+        List<Object> args = new ArrayList<>();
+        List<String> known = new ArrayList<>();
+        for (OrderStatus status : OrderStatus.values()) {
+            List<String> names = new ArrayList<>();
+            names.add(status.getLabel());
+            names.add(status.name());
+            names.addAll(status.getAliases());
+            for (String name : names) {
+                if (!known.contains(name)) {
+                    cases.append(" WHEN ? THEN ?");
+                    args.add(name);
+                    args.add(status.getCode());
+                    known.add(name);
+                }
+            }
+        }
+        cases.append(" END");
+        args.addAll(known);
+        args.add(limit);
+        return jdbcTemplate.update("UPDATE order_record SET status_code = " + cases
+                + " WHERE status_code IS NULL AND status IN (" + placeholders(known.size()) + ") LIMIT ?",
+                args.toArray());
+    }
+
+    @Override
+    public int archiveOrders(Collection<Long> orderIds, Collection<OrderStatus> statuses, LocalDateTime cutoff) {
+        if (orderIds.isEmpty() || statuses.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(orderIds);
+        for (OrderStatus status : statuses) {
+            args.add(status.getCode());
+        }
+        args.add(Timestamp.valueOf(cutoff));
+        List<Long> locked = jdbcTemplate.queryForList("SELECT id FROM order_record WHERE id IN ("
+                + placeholders(orderIds.size()) + ") AND status_code IN (" + placeholders(statuses.size())
+                + ") AND create_time < ? ORDER BY id FOR UPDATE", Long.class, args.toArray());
+        if (locked.isEmpty()) {
+            return 0;
+        }
+
+        String in = placeholders(locked.size());
+        List<Object> insertArgs = new ArrayList<>();
+        insertArgs.add(Timestamp.valueOf(LocalDateTime.now()));
+        insertArgs.addAll(locked);
+        jdbcTemplate.update("INSERT INTO order_archive (id, username, status_code, total_price, create_time, "
+                + "product_names, receiver_name, receiver_phone, receiver_address, items_json, archive_time) "
+                + "SELECT o.id, o.username, o.status_code, o.total_price, o.create_time, o.product_names, "
+                + "o.receiver_name, o.receiver_phone, o.receiver_address, "
+                + "(SELECT JSON_ARRAYAGG(JSON_OBJECT('id', i.id, 'productId', i.product_id, "
+                + "'productName', i.product_name, 'imageUrl', i.image_url, 'price', i.price, "
+                + "'quantity', i.quantity)) FROM order_item i WHERE i.order_id = o.id), ? "
+                + "FROM order_record o WHERE o.id IN (" + in + ")", insertArgs.toArray());
+        jdbcTemplate.update("DELETE FROM order_item WHERE order_id IN (" + in + ")", locked.toArray());
+        jdbcTemplate.update("DELETE FROM order_record WHERE id IN (" + in + ")", locked.toArray());
+        return locked.size();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.OutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * 到期待发的消息，按ID顺序；某用户有更早的消息正在退避重试时，该用户后续的消息不取出，保证按序送达
+     */
+    @Query("SELECT m FROM OutboxMessage m WHERE m.status = 'PENDING' AND m.nextAttemptTime <= :now "
+            + "AND NOT EXISTS (SELECT b.id FROM OutboxMessage b WHERE b.recipient = m.recipient "
+            + "AND b.status = 'PENDING' AND b.nextAttemptTime > :now AND b.id < m.id) ORDER BY m.id")
+    List<OutboxMessage> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT COUNT(m) FROM OutboxMessage m WHERE m.status = 'PENDING'")
+    long countPending();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxMessage m SET m.status = :status, m.sentTime = :time WHERE m.id IN :ids")
+    int markFinished(@Param("ids") Collection<Long> ids, @Param("status") String status,
+            @Param("time") LocalDateTime time);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxMessage m SET m.attempts = :attempts, m.nextAttemptTime = :next, m.status = :status "
+            + "WHERE m.id = :id")
+    int scheduleRetry(@Param("id") Long id, @Param("attempts") int attempts, @Param("next") LocalDateTime next,
+            @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxMessage m WHERE m.status <> 'PENDING' AND m.createTime < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,7 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.PriceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PriceRollupRepository extends JpaRepository<PriceRollup, Long> {
+}
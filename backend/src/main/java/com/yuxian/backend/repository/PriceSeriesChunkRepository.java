@@ -0,0 +1,12 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.PriceSeriesChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
+
+public interface PriceSeriesChunkRepository extends JpaRepository<PriceSeriesChunk, Long> {
+
+    PriceSeriesChunk findFirstByProductIdAndSealedFalse(Long productId);
+
+    List<PriceSeriesChunk> findByProductIdOrderByStartEpochSecondAsc(Long productId);
+}
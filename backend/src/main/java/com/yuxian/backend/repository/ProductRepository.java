@@ -6,15 +6,12 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import java.util.List;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
     List<Product> findByCategory(String category);
 
     List<Product> findByNameContaining(String name);
 
-    @Query(value = "SELECT * FROM product ORDER BY RAND() LIMIT 4", nativeQuery = true)
-    List<Product> findRandomRecommendations();
-
     @Modifying
     @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.id = :id AND p.stock >= :quantity")
     int decreaseStock(Long id, Integer quantity);
@@ -22,4 +19,10 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Modifying
     @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.id = :id")
     void increaseStock(Long id, Integer quantity);
+
+    /**
+     * 对商品行加排他锁，用于串行化同一商品的价格记录写入；需在事务内调用
+     */
+    @Query(value = "SELECT id FROM product WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Long lockById(Long id);
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.yuxian.backend.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * 按商品ID升序批量扣减库存，一次 JDBC 批量提交
+     *
+     * @param quantities 商品ID -> 扣减数量，按ID升序以固定加锁顺序，避免并发下单互相死锁
+     * @return 库存不足而未扣减的商品ID，全部成功时返回 null
+     */
+    Long decreaseStockBatch(SortedMap<Long, Integer> quantities);
+
+    /**
+     * 批量调整库存（正数增加、负数减少），库存不会被扣成负数
+     *
+     * @return 未更新的商品ID（商品不存在或库存不足），全部成功时为空集合
+     */
+    Set<Long> adjustStockBatch(SortedMap<Long, Integer> deltas);
+
+    /**
+     * 直接读取数据库中的当前库存，绕过持久化上下文
+     */
+    Map<Long, Integer> loadStock(Collection<Long> ids);
+
+    /**
+     * 按ID升序对商品行加排他锁（SELECT ... FOR UPDATE），需在事务内调用
+     */
+    void lockForUpdate(SortedSet<Long> ids);
+}
@@ -0,0 +1,96 @@
+package com.yuxian.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * ProductRepository 的自定义实现，Spring Data 按 Impl 后缀自动组合
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String DECREASE_STOCK_SQL =
+            "UPDATE product SET stock = stock - ? WHERE id = ? AND stock >= ?";
+    private static final String ADJUST_STOCK_SQL =
+            "UPDATE product SET stock = stock + ? WHERE id = ? AND stock + ? >= 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Long decreaseStockBatch(SortedMap<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(quantities.size());
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ids.add(entry.getKey());
+            args.add(new Object[] { entry.getValue(), entry.getKey(), entry.getValue() });
+        }
+
+        int[] rows = jdbcTemplate.batchUpdate(DECREASE_STOCK_SQL, args);
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == 0) {
+                return ids.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Set<Long> adjustStockBatch(SortedMap<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+            args.add(new Object[] { entry.getValue(), entry.getKey(), entry.getValue() });
+        }
+        int[] rows = jdbcTemplate.batchUpdate(ADJUST_STOCK_SQL, args);
+        Set<Long> skipped = new HashSet<>();
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == 0) {
+                skipped.add(ids.get(i));
+            }
+        }
+        return skipped;
+    }
+
+    @Override
+    public Map<Long, Integer> loadStock(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock FROM product WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    stock.put(rs.getLong(1), rs.getInt(2));
+                }, ids.toArray());
+        return stock;
+    }
+
+    @Override
+    public void lockForUpdate(SortedSet<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.queryForList("SELECT id FROM product WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                Long.class, ids.toArray());
+    }
+}
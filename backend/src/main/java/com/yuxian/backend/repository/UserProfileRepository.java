@@ -0,0 +1,7 @@
+package com.yuxian.backend.repository;
+
+import com.yuxian.backend.entity.UserProfile;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
+}
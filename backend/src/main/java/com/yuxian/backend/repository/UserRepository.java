@@ -7,9 +7,23 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     User findByUsername(String username);
 
+    /**
+     * 认证用：只取用户 ID 与角色，不加载头像和地址
+     */
+    @Query("SELECT u.id, u.role FROM User u WHERE u.username = :username")
+    List<Object[]> findPrincipalByUsername(@Param("username") String username);
+
+    @Query("SELECT u.username FROM User u WHERE u.id = :id")
+    String findUsernameById(@Param("id") Long id);
+
     /**
      * 原子操作：扣减用户积分
      * 只有当用户积分足够时才会扣减，防止并发导致积分变负
@@ -22,6 +36,49 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("UPDATE User u SET u.points = u.points - :cost WHERE u.id = :id AND u.points >= :cost")
     int deductPoints(@Param("id") Long id, @Param("cost") Integer cost);
 
+    /**
+     * 原子操作：增加用户积分，同时递增版本号
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.points = COALESCE(u.points, 0) + :points, u.version = COALESCE(u.version, 0) + 1 "
+            + "WHERE u.id = :id")
+    int addPoints(@Param("id") Long id, @Param("points") Integer points);
+
+    /**
+     * 原子操作：扣减余额，余额不足时不更新
+     *
+     * @return 更新行数，0表示余额不足或用户不存在
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.balance = COALESCE(u.balance, 0) - :amount, u.version = COALESCE(u.version, 0) + 1 "
+            + "WHERE u.id = :id AND COALESCE(u.balance, 0) >= :amount")
+    int deductBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * 原子操作：增加余额（退款入账）
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.balance = COALESCE(u.balance, 0) + :amount, u.version = COALESCE(u.version, 0) + 1 "
+            + "WHERE u.id = :id")
+    int addBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * 原子操作：签到并发放积分，当天已签到时不更新
+     *
+     * @return 更新行数，0表示今日已签到或用户不存在
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.lastSignInDate = :today, u.points = COALESCE(u.points, 0) + :reward, "
+            + "u.version = COALESCE(u.version, 0) + 1 "
+            + "WHERE u.id = :id AND (u.lastSignInDate IS NULL OR u.lastSignInDate <> :today)")
+    int signIn(@Param("id") Long id, @Param("today") LocalDate today, @Param("reward") Integer reward);
+
+    @Query("SELECT u.points FROM User u WHERE u.id = :id")
+    Integer findPointsById(@Param("id") Long id);
+
+    @Query("SELECT u.username, u.id FROM User u WHERE u.username IN :usernames")
+    List<Object[]> findIdsByUsernames(@Param("usernames") Collection<String> usernames);
+
     @Modifying
     @Transactional
     @Query("UPDATE User u SET u.version = 0 WHERE u.version IS NULL")
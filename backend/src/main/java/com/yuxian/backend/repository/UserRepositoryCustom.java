@@ -0,0 +1,23 @@
+package com.yuxian.backend.repository;
+
+import java.math.BigDecimal;
+import java.util.SortedMap;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * 按用户名升序批量增加余额，一次 JDBC 批量提交；同时递增乐观锁版本号，
+     * 使并发持有旧实体的写操作失败重试，而不是覆盖这次入账
+     *
+     * @param credits 用户名 -> 入账金额
+     */
+    void creditBalances(SortedMap<String, BigDecimal> credits);
+
+    /**
+     * 把旧版本 users.avatar 列中的头像复制到 user_profiles，每次最多处理 limit 行；
+     * 已有资料行的用户跳过，旧列不存在时直接返回 0
+     *
+     * @return 本次复制的行数
+     */
+    int migrateLegacyAvatars(int limit);
+}
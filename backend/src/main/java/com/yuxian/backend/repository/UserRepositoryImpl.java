@@ -0,0 +1,47 @@
+package com.yuxian.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * UserRepository 的自定义实现，批量余额变更与数据迁移直接走 JDBC，不加载用户实体
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void creditBalances(SortedMap<String, BigDecimal> credits) {
+        if (credits.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(credits.size());
+        for (Map.Entry<String, BigDecimal> entry : credits.entrySet()) {
+            args.add(new Object[] { entry.getValue(), entry.getKey() });
+        }
+        jdbcTemplate.batchUpdate("UPDATE users SET balance = COALESCE(balance, 0) + ?, "
+                + "version = COALESCE(version, 0) + 1 WHERE username = ?", args);
+    }
+
+    @Override
+    public int migrateLegacyAvatars(int limit) {
+        Integer legacyColumns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'avatar'",
+                Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return 0;
+        }
+        return jdbcTemplate.update("INSERT INTO user_profiles (user_id, avatar) "
+                + "SELECT u.id, u.avatar FROM users u WHERE u.avatar IS NOT NULL "
+                + "AND NOT EXISTS (SELECT 1 FROM user_profiles p WHERE p.user_id = u.id) LIMIT ?", limit);
+    }
+}
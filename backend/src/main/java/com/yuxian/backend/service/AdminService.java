@@ -11,4 +11,6 @@ public interface AdminService {
     void updateUserPoints(Long id, Integer points);
     Map<String, Object> getOrders(int page, int size, String keyword, String status);
     void updateOrderStatus(Long id, String status);
+    Map<String, Object> getRuntimeMetrics();
+    void setHotProduct(Long productId, boolean hot);
 }
@@ -0,0 +1,267 @@
+package com.yuxian.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.entity.IdempotencyRecord;
+import com.yuxian.backend.repository.IdempotencyRecordRepository;
+import com.yuxian.backend.utils.SingleFlightCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key 幂等存储
+ * 同一用户、同一操作、同一 Key 的请求只执行一次：完成后的响应在 TTL 内直接重放，
+ * 不再进入业务层；并发的重复请求等待第一次执行的结果，而不是同时执行。
+ * Key 相同但请求内容不同会被拒绝。执行抛出异常时不保存结果，客户端可以用同一 Key 重试。
+ * 内存中条目数量有上限；可选写入数据库，重启或多实例部署时仍能识别重放。
+ */
+@Service
+public class IdempotencyStore implements MetricsSource {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    @Value("${idempotency.persist:false}")
+    private boolean persist;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    public IdempotencyStore(IdempotencyRecordRepository recordRepository, ObjectMapper objectMapper) {
+        this.recordRepository = recordRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 以幂等方式执行操作
+     *
+     * @param username  当前用户
+     * @param operation 操作名，与 Key 一起确定作用域
+     * @param key       客户端传入的 Idempotency-Key
+     * @param request   请求内容，用于校验同一 Key 是否被用于不同请求
+     * @param action    实际执行的操作
+     */
+    public ResponseEntity<?> execute(String username, String operation, String key, Object request,
+            Supplier<ResponseEntity<?>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key 格式错误");
+        }
+        String scopeKey = username + ":" + operation + ":" + key;
+        String fingerprint = fingerprint(operation, request);
+
+        Entry mine = new Entry(fingerprint);
+        Entry existing = entries.putIfAbsent(scopeKey, mine);
+        if (existing == null && persist) {
+            IdempotencyRecord record = recordRepository.findById(scopeKey).orElse(null);
+            if (record != null && record.getCreateTime().isAfter(LocalDateTime.now().minusHours(ttlHours))) {
+                // 其他实例或重启前已完成的请求，装入内存后按重放处理
+                mine.fingerprint = record.getFingerprint();
+                mine.result.complete(new StoredResponse(record.getStatusCode(), record.getContentType(),
+                        record.getBody()));
+                existing = mine;
+            }
+        }
+
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+
+        executed.increment();
+        if (entries.size() > maxEntries) {
+            evictOldest();
+        }
+        try {
+            StoredResponse response = capture(action.get());
+            mine.result.complete(response);
+            if (persist && response.status < 500) {
+                save(scopeKey, fingerprint, response);
+            }
+            return response.toResponseEntity(false);
+        } catch (RuntimeException e) {
+            // 失败不留存，让客户端可以用同一 Key 重试；等待中的重复请求收到同样的异常
+            entries.remove(scopeKey, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedRate = 600000)
+    public void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(ttlHours);
+        entries.values().removeIf(e -> e.result.isDone() && e.createTime.isBefore(cutoff));
+        if (persist) {
+            recordRepository.deleteByCreateTimeBefore(cutoff);
+        }
+    }
+
+    private ResponseEntity<?> replay(Entry existing, String fingerprint) {
+        if (!existing.fingerprint.equals(fingerprint)) {
+            conflicts.increment();
+            throw new RuntimeException("Idempotency-Key 已用于其他请求");
+        }
+        if (existing.result.isDone()) {
+            replayed.increment();
+        } else {
+            waited.increment();
+        }
+        try {
+            return existing.result.get(waitSeconds, TimeUnit.SECONDS).toResponseEntity(true);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("请求处理失败", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("相同请求正在处理中，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求被中断");
+        }
+    }
+
+    private StoredResponse capture(ResponseEntity<?> response) {
+        Object body = response.getBody();
+        byte[] bytes;
+        String contentType;
+        if (body == null) {
+            bytes = new byte[0];
+            contentType = null;
+        } else if (body instanceof String) {
+            bytes = ((String) body).getBytes(StandardCharsets.UTF_8);
+            contentType = "text/plain;charset=UTF-8";
+        } else if (body instanceof byte[]) {
+            bytes = (byte[]) body;
+            contentType = MediaType.APPLICATION_JSON_VALUE;
+        } else {
+            try {
+                bytes = objectMapper.writeValueAsBytes(body);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("响应序列化失败", e);
+            }
+            contentType = MediaType.APPLICATION_JSON_VALUE;
+        }
+        return new StoredResponse(response.getStatusCode().value(), contentType, bytes);
+    }
+
+    private void save(String scopeKey, String fingerprint, StoredResponse response) {
+        try {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setScopeKey(scopeKey);
+            record.setFingerprint(fingerprint);
+            record.setStatusCode(response.status);
+            record.setContentType(response.contentType);
+            record.setBody(response.body);
+            record.setCreateTime(LocalDateTime.now());
+            recordRepository.save(record);
+        } catch (RuntimeException e) {
+            System.err.println("幂等记录持久化失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 只淘汰已完成的条目，执行中的请求仍需要它来合并重复提交
+     */
+    private void evictOldest() {
+        SingleFlightCache.trimOldest(entries, maxEntries, e -> e.createdAt, e -> e.result.isDone());
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new RuntimeException("请求摘要计算失败", e);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "idempotency";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", entries.size());
+        metrics.put("executed", executed.sum());
+        metrics.put("replayed", replayed.sum());
+        metrics.put("waited", waited.sum());
+        metrics.put("conflicts", conflicts.sum());
+        metrics.put("persist", persist);
+        return metrics;
+    }
+
+    private static class Entry {
+        volatile String fingerprint;
+        final LocalDateTime createTime = LocalDateTime.now();
+        final long createdAt = System.currentTimeMillis();
+        final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static class StoredResponse {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        StoredResponse(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        ResponseEntity<byte[]> toResponseEntity(boolean replayed) {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+            if (contentType != null) {
+                builder.header(HttpHeaders.CONTENT_TYPE, contentType);
+            }
+            if (replayed) {
+                builder.header(REPLAYED_HEADER, "true");
+            }
+            return builder.body(body);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.exception.QueueFullException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录/注册限流
+ * 按用户名和客户端 IP 各维护一个令牌桶，每次尝试各消耗一个令牌，任一桶为空即返回 429；
+ * 在哈希之前拦截，撞库和刷接口不会占用密码哈希线程池。长时间未使用的桶定期清理。
+ */
+@Service
+public class LoginRateLimiter implements MetricsSource {
+
+    @Value("${auth.throttle.user-burst:10}")
+    private int userBurst;
+
+    @Value("${auth.throttle.user-per-minute:10}")
+    private int userPerMinute;
+
+    @Value("${auth.throttle.ip-burst:60}")
+    private int ipBurst;
+
+    @Value("${auth.throttle.ip-per-minute:120}")
+    private int ipPerMinute;
+
+    private final ConcurrentHashMap<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttledByUser = new LongAdder();
+    private final LongAdder throttledByIp = new LongAdder();
+
+    /**
+     * 登录尝试：同时检查用户名桶与 IP 桶
+     *
+     * @throws QueueFullException 超出频率限制
+     */
+    public void acquire(String username, String ip) {
+        long now = System.nanoTime();
+        if (ip != null) {
+            TokenBucket bucket = ipBuckets.computeIfAbsent(ip, k -> new TokenBucket(ipBurst, ipPerMinute, now));
+            long waitSeconds = bucket.tryAcquire(now);
+            if (waitSeconds > 0) {
+                throttledByIp.increment();
+                throw new QueueFullException("请求过于频繁，请稍后再试", (int) waitSeconds);
+            }
+        }
+        if (username != null) {
+            TokenBucket bucket = userBuckets.computeIfAbsent(username,
+                    k -> new TokenBucket(userBurst, userPerMinute, now));
+            long waitSeconds = bucket.tryAcquire(now);
+            if (waitSeconds > 0) {
+                throttledByUser.increment();
+                throw new QueueFullException("该账号登录尝试过于频繁，请稍后再试", (int) waitSeconds);
+            }
+        }
+        allowed.increment();
+    }
+
+    /**
+     * 清理已回满的桶，回满说明近期没有请求，丢弃后与新建等价
+     */
+    @Scheduled(fixedRate = 300000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(b -> b.isFull(now));
+        ipBuckets.values().removeIf(b -> b.isFull(now));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "loginThrottle";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("allowed", allowed.sum());
+        metrics.put("throttledByUser", throttledByUser.sum());
+        metrics.put("throttledByIp", throttledByIp.sum());
+        metrics.put("userBuckets", userBuckets.size());
+        metrics.put("ipBuckets", ipBuckets.size());
+        return metrics;
+    }
+
+    /**
+     * 令牌桶：容量 burst，每分钟补充 perMinute 个
+     */
+    static class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int burst, int perMinute, long now) {
+            this.capacity = Math.max(burst, 1);
+            this.tokensPerNano = Math.max(perMinute, 1) / 60e9;
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        /**
+         * 取一个令牌，成功返回 0，否则返回需要等待的秒数
+         */
+        synchronized long tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano / 1e9));
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.OutboxMessage;
+import com.yuxian.backend.repository.OutboxMessageRepository;
+import com.yuxian.backend.task.OutboxDispatcher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * 通知发件箱
+ * 业务代码在事务内调用，消息与业务数据一起提交；事务回滚时消息也不会存在。
+ * 提交后唤醒 {@link OutboxDispatcher} 立即分发，不在事务内做任何网络 IO。
+ */
+@Service
+public class NotificationOutbox {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final OutboxDispatcher dispatcher;
+
+    public NotificationOutbox(OutboxMessageRepository outboxMessageRepository, OutboxDispatcher dispatcher) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * 推送给指定用户；同一用户的消息按写入顺序送达
+     */
+    public void toUser(String username, String message) {
+        save(username, message);
+    }
+
+    /**
+     * 广播给在线管理员
+     */
+    public void toAdmins(String message) {
+        save(null, message);
+    }
+
+    private void save(String recipient, String payload) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage message = new OutboxMessage();
+        message.setRecipient(recipient);
+        message.setPayload(payload);
+        message.setStatus(OutboxMessage.PENDING);
+        message.setAttempts(0);
+        message.setNextAttemptTime(now);
+        message.setCreateTime(now);
+        outboxMessageRepository.save(message);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        } else {
+            dispatcher.wakeUp();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.yuxian.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.entity.ArchivedOrder;
+import com.yuxian.backend.entity.OrderItem;
+import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
+import com.yuxian.backend.repository.ArchivedOrderRepository;
+import com.yuxian.backend.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单冷数据归档
+ * 定时把已送达、已退款、已取消且超过保留天数的订单按块移入 order_archive，每块一个短事务，
+ * 热表只保留近期和进行中的订单。读取端对调用方透明：用户订单列表和后台订单搜索会合并归档数据，
+ * 归档订单以只读的 OrderRecord 返回（不受持久化上下文管理，不能再修改）。
+ */
+@Service
+public class OrderArchiveService implements MetricsSource {
+
+    /** 可归档的终态订单；已送达的订单超过保留期后不再受理售后 */
+    public static final Set<OrderStatus> ARCHIVABLE = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.REFUNDED,
+            OrderStatus.CANCELLED);
+
+    private static final TypeReference<List<OrderItem>> ITEM_LIST = new TypeReference<>() {
+    };
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${order.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.archive.after-days:180}")
+    private long afterDays;
+
+    @Value("${order.archive.chunk-size:500}")
+    private int chunkSize;
+
+    private final LongAdder archived = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+
+    public OrderArchiveService(OrderRepository orderRepository,
+            ArchivedOrderRepository archivedOrderRepository,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Scheduled(cron = "${order.archive.cron:0 30 3 * * ?}")
+    public void archiveCompletedOrders() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            List<Long> ids = orderRepository.findIdsByStatusInCreatedBefore(ARCHIVABLE, cutoff, afterId,
+                    PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            try {
+                Integer moved = transactionTemplate.execute(
+                        status -> orderRepository.archiveOrders(ids, ARCHIVABLE, cutoff));
+                total += moved != null ? moved : 0;
+            } catch (RuntimeException e) {
+                // 跳过这一块，下次运行再试
+                System.err.println("订单归档失败，订单 " + ids.get(0) + " ~ " + ids.get(ids.size() - 1) + ": "
+                        + e.getMessage());
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        archived.add(total);
+        runs.increment();
+        lastRunMillis.set(System.currentTimeMillis() - start);
+        if (total > 0) {
+            System.out.println(">>> 已归档 " + total + " 笔完结订单（" + afterDays + " 天前）");
+        }
+    }
+
+    /**
+     * 合并热表订单与该用户的归档订单，按创建时间倒序
+     */
+    public List<OrderRecord> mergeUserOrders(String username, List<OrderRecord> hotOrders) {
+        List<ArchivedOrder> archivedOrders = archivedOrderRepository.findByUsernameOrderByCreateTimeDesc(username);
+        if (archivedOrders.isEmpty()) {
+            return hotOrders;
+        }
+        List<OrderRecord> merged = new ArrayList<>(hotOrders.size() + archivedOrders.size());
+        merged.addAll(hotOrders);
+        for (ArchivedOrder order : archivedOrders) {
+            merged.add(toOrderRecord(order));
+        }
+        merged.sort(Comparator.comparing(OrderRecord::getCreateTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return merged;
+    }
+
+    /**
+     * 归档订单中计入销售额的金额合计，后台总销售额需加上这部分
+     */
+    public BigDecimal sumSales() {
+        return archivedOrderRepository.sumTotalPrice(OrderStatus.REVENUE);
+    }
+
+    public long countOrders() {
+        return archivedOrderRepository.count();
+    }
+
+    public boolean isArchived(Long orderId) {
+        return archivedOrderRepository.existsById(orderId);
+    }
+
+    /**
+     * 删除用户自己的归档订单
+     *
+     * @param deletable 允许删除的状态，为 null 表示不限
+     * @return 订单不在归档表中时返回 false
+     */
+    public boolean deleteUserOrder(Long orderId, String username, Set<OrderStatus> deletable) {
+        ArchivedOrder order = archivedOrderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return false;
+        }
+        if (!order.getUsername().equals(username)) {
+            throw new RuntimeException("无权操作此订单");
+        }
+        if (deletable != null && !deletable.contains(order.getStatus())) {
+            throw new RuntimeException("当前订单状态不允许删除或取消");
+        }
+        archivedOrderRepository.delete(order);
+        return true;
+    }
+
+    /**
+     * 按后台订单搜索的条件查询归档订单，返回从 offset 开始的至多 limit 条及归档总数
+     *
+     * @param status 为 null 表示不限状态
+     */
+    public ArchiveSlice search(String keyword, OrderStatus status, long offset, int limit) {
+        if (status != null && !ARCHIVABLE.contains(status)) {
+            return new ArchiveSlice(Collections.emptyList(), 0);
+        }
+        if (limit <= 0) {
+            // 只需要总数
+            return new ArchiveSlice(Collections.emptyList(),
+                    findPage(keyword, status, PageRequest.of(0, 1)).getTotalElements());
+        }
+        int firstPage = (int) (offset / limit);
+        List<OrderRecord> rows = new ArrayList<>();
+        long total = 0;
+        // 偏移量不一定与页对齐，最多取相邻两页再截取
+        for (int page = firstPage; page <= firstPage + 1; page++) {
+            Page<ArchivedOrder> result = findPage(keyword, status, PageRequest.of(page, limit));
+            total = result.getTotalElements();
+            for (ArchivedOrder order : result.getContent()) {
+                rows.add(toOrderRecord(order));
+            }
+            if (!result.hasNext() || offset % limit == 0) {
+                break;
+            }
+        }
+        int from = (int) Math.min(offset - (long) firstPage * limit, rows.size());
+        int to = Math.min(from + limit, rows.size());
+        return new ArchiveSlice(new ArrayList<>(rows.subList(from, to)), total);
+    }
+
+    private Page<ArchivedOrder> findPage(String keyword, OrderStatus status, PageRequest pageable) {
+        boolean hasKeyword = keyword != null && !keyword.isEmpty();
+        if (hasKeyword && status != null) {
+            return archivedOrderRepository.findByUsernameContainingAndStatusOrderByCreateTimeDesc(keyword, status,
+                    pageable);
+        } else if (hasKeyword) {
+            return archivedOrderRepository.findByUsernameContainingOrderByCreateTimeDesc(keyword, pageable);
+        } else if (status != null) {
+            return archivedOrderRepository.findByStatusOrderByCreateTimeDesc(status, pageable);
+        }
+        return archivedOrderRepository.findAllByOrderByCreateTimeDesc(pageable);
+    }
+
+    private OrderRecord toOrderRecord(ArchivedOrder archivedOrder) {
+        OrderRecord order = new OrderRecord();
+        order.setId(archivedOrder.getId());
+        order.setUsername(archivedOrder.getUsername());
+        order.setStatus(archivedOrder.getStatus());
+        order.setTotalPrice(archivedOrder.getTotalPrice());
+        order.setCreateTime(archivedOrder.getCreateTime());
+        order.setProductNames(archivedOrder.getProductNames());
+        order.setReceiverName(archivedOrder.getReceiverName());
+        order.setReceiverPhone(archivedOrder.getReceiverPhone());
+        order.setReceiverAddress(archivedOrder.getReceiverAddress());
+        order.setArchived(true);
+        List<OrderItem> items = new ArrayList<>();
+        if (archivedOrder.getItemsJson() != null) {
+            try {
+                items = objectMapper.readValue(archivedOrder.getItemsJson(), ITEM_LIST);
+            } catch (JsonProcessingException e) {
+                System.err.println("归档订单明细解析失败 #" + archivedOrder.getId() + ": " + e.getMessage());
+            }
+        }
+        items.sort(Comparator.comparing(OrderItem::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        order.setItems(items);
+        return order;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderArchive";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("afterDays", afterDays);
+        metrics.put("archived", archived.sum());
+        metrics.put("runs", runs.sum());
+        metrics.put("lastRunMs", lastRunMillis.get());
+        return metrics;
+    }
+
+    public static class ArchiveSlice {
+        private final List<OrderRecord> content;
+        private final long total;
+
+        ArchiveSlice(List<OrderRecord> content, long total) {
+            this.content = content;
+            this.total = total;
+        }
+
+        public List<OrderRecord> getContent() { return content; }
+        public long getTotal() { return total; }
+    }
+}
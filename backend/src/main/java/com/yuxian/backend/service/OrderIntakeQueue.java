@@ -0,0 +1,300 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.dto.OrderIntakeStatus;
+import com.yuxian.backend.entity.Address;
+import com.yuxian.backend.exception.QueueFullException;
+import com.yuxian.backend.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 高峰期异步下单受理队列
+ * 请求线程只做轻量校验并入队，立即返回受理单号；固定数量的后台线程从有界队列批量取出，
+ * 在一个事务内连续创建多笔订单（组提交），减少事务与连接占用。组内任一笔失败时整组回滚，
+ * 再逐笔单独重试，保证失败互不影响。结果可轮询查询，也会通过 /ws/orders 推送给用户。
+ * 队列满时直接拒绝（429），由客户端稍后重试。
+ */
+@Service
+public class OrderIntakeQueue implements MetricsSource {
+
+    private final OrderService orderService;
+    private final ProductCatalog productCatalog;
+    private final ProductRepository productRepository;
+    private final StockReservationEngine stockReservationEngine;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${order.intake.capacity:1000}")
+    private int capacity;
+
+    @Value("${order.intake.workers:4}")
+    private int workers;
+
+    @Value("${order.intake.batch-size:20}")
+    private int batchSize;
+
+    @Value("${order.intake.result-ttl-minutes:30}")
+    private long resultTtlMinutes;
+
+    private BlockingQueue<IntakeRequest> queue;
+    private ExecutorService workerPool;
+    private volatile boolean running = true;
+
+    private final ConcurrentHashMap<String, OrderIntakeStatus> tickets = new ConcurrentHashMap<>();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder groupCommits = new LongAdder();
+    private final LongAdder groupFallbacks = new LongAdder();
+
+    public OrderIntakeQueue(OrderService orderService,
+            ProductCatalog productCatalog,
+            ProductRepository productRepository,
+            StockReservationEngine stockReservationEngine,
+            TransactionTemplate transactionTemplate) {
+        this.orderService = orderService;
+        this.productCatalog = productCatalog;
+        this.productRepository = productRepository;
+        this.stockReservationEngine = stockReservationEngine;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        AtomicInteger seq = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(Math.max(workers, 1), r -> {
+            Thread t = new Thread(r, "order-intake-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < Math.max(workers, 1); i++) {
+            workerPool.submit(this::drainLoop);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workerPool.shutdownNow();
+        List<IntakeRequest> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (IntakeRequest request : left) {
+            fail(request, "服务正在重启，请重新下单");
+        }
+    }
+
+    /**
+     * 校验并受理下单请求，返回受理单
+     *
+     * @throws QueueFullException 队列已满
+     */
+    public OrderIntakeStatus submit(String username, List<Map<String, Object>> itemPayloads, Address address,
+            Long couponId) {
+        validate(itemPayloads, address);
+
+        String ticket = UUID.randomUUID().toString().replace("-", "");
+        OrderIntakeStatus status = new OrderIntakeStatus(ticket, username, OrderIntakeStatus.PENDING, null,
+                "订单排队处理中", LocalDateTime.now(), null);
+        tickets.put(ticket, status);
+
+        if (!queue.offer(new IntakeRequest(ticket, username, itemPayloads, address, couponId))) {
+            tickets.remove(ticket);
+            rejected.increment();
+            throw new QueueFullException("下单人数过多，请稍后重试", 1);
+        }
+        accepted.increment();
+        return status;
+    }
+
+    /**
+     * 查询受理结果，只能查询自己的受理单
+     */
+    public OrderIntakeStatus getStatus(String ticket, String username) {
+        OrderIntakeStatus status = tickets.get(ticket);
+        if (status == null || !status.getUsername().equals(username)) {
+            throw new RuntimeException("受理单不存在或已过期");
+        }
+        return status;
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictExpiredTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(resultTtlMinutes);
+        tickets.values().removeIf(s -> s.getFinishTime() != null && s.getFinishTime().isBefore(cutoff));
+    }
+
+    private void validate(List<Map<String, Object>> itemPayloads, Address address) {
+        if (itemPayloads == null || itemPayloads.isEmpty()) {
+            throw new RuntimeException("订单商品不能为空");
+        }
+        if (address == null) {
+            throw new RuntimeException("收货地址不能为空");
+        }
+        ProductCatalog.Snapshot snapshot = productCatalog.current();
+        for (Map<String, Object> payload : itemPayloads) {
+            if (payload.get("id") == null || payload.get("quantity") == null) {
+                throw new RuntimeException("订单商品参数错误");
+            }
+            Long pid = Long.valueOf(payload.get("id").toString());
+            int quantity = Integer.parseInt(payload.get("quantity").toString());
+            if (quantity <= 0) {
+                throw new RuntimeException("商品数量必须大于0");
+            }
+            if (snapshot.getProduct(pid) == null) {
+                throw new RuntimeException("商品不存在: " + pid);
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<IntakeRequest> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, Math.max(batchSize, 1) - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("下单受理线程异常: " + e.getMessage());
+                for (IntakeRequest request : batch) {
+                    OrderIntakeStatus status = tickets.get(request.ticket);
+                    if (status != null && OrderIntakeStatus.PENDING.equals(status.getStatus())) {
+                        fail(request, "服务器繁忙，请稍后重试");
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<IntakeRequest> batch) {
+        if (batch.size() > 1) {
+            try {
+                List<Long> orderIds = transactionTemplate.execute(status -> {
+                    // 先按ID升序锁住整组涉及的商品行，避免多组并发时交叉加锁死锁
+                    productRepository.lockForUpdate(lockedProductIds(batch));
+                    List<Long> ids = new ArrayList<>(batch.size());
+                    for (IntakeRequest request : batch) {
+                        ids.add(create(request));
+                    }
+                    return ids;
+                });
+                groupCommits.increment();
+                for (int i = 0; i < batch.size(); i++) {
+                    succeed(batch.get(i), orderIds.get(i));
+                }
+                return;
+            } catch (RuntimeException e) {
+                groupFallbacks.increment();
+            }
+        }
+
+        for (IntakeRequest request : batch) {
+            try {
+                succeed(request, create(request));
+            } catch (RuntimeException e) {
+                fail(request, e.getMessage() != null ? e.getMessage() : "下单失败");
+            }
+        }
+    }
+
+    private SortedSet<Long> lockedProductIds(List<IntakeRequest> batch) {
+        SortedSet<Long> ids = new TreeSet<>();
+        for (IntakeRequest request : batch) {
+            for (Map<String, Object> payload : request.items) {
+                Long pid = Long.valueOf(payload.get("id").toString());
+                if (!stockReservationEngine.isManaged(pid)) {
+                    ids.add(pid);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private Long create(IntakeRequest request) {
+        return orderService.createOrder(request.username, request.items, request.address, request.couponId);
+    }
+
+    private void succeed(IntakeRequest request, Long orderId) {
+        tickets.computeIfPresent(request.ticket, (k, s) -> s.succeed(orderId));
+        succeeded.increment();
+        notifyUser(request.username, "【系统消息】订单 #" + orderId + " 已创建，请前往支付");
+    }
+
+    private void fail(IntakeRequest request, String message) {
+        tickets.computeIfPresent(request.ticket, (k, s) -> s.fail(message));
+        failed.increment();
+        notifyUser(request.username, "【系统消息】下单失败：" + message);
+    }
+
+    private void notifyUser(String username, String message) {
+        try {
+            WebSocketServer.sendToUser(username, message);
+        } catch (Exception e) {
+            System.err.println("下单结果推送失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderIntake";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", queue.size());
+        metrics.put("capacity", capacity);
+        metrics.put("accepted", accepted.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("succeeded", succeeded.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("groupCommits", groupCommits.sum());
+        metrics.put("groupFallbacks", groupFallbacks.sum());
+        metrics.put("trackedTickets", tickets.size());
+        return metrics;
+    }
+
+    private static class IntakeRequest {
+        final String ticket;
+        final String username;
+        final List<Map<String, Object>> items;
+        final Address address;
+        final Long couponId;
+
+        IntakeRequest(String ticket, String username, List<Map<String, Object>> items, Address address,
+                Long couponId) {
+            this.ticket = ticket;
+            this.username = username;
+            this.items = items;
+            this.address = address;
+            this.couponId = couponId;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.yuxian.backend.service;
 
+import com.yuxian.backend.config.AuthUser;
 import com.yuxian.backend.entity.Address;
 import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
 import java.util.List;
 import java.util.Map;
+import com.yuxian.backend.dto.CursorPage;
+import com.yuxian.backend.dto.OrderSummaryVO;
 import com.yuxian.backend.dto.RefundDetailVO;
 
 public interface OrderService {
@@ -15,10 +19,20 @@ public interface OrderService {
 
     void auditRefund(Long orderId, boolean pass, String rejectReason, String adminUsername);
 
-    void payOrder(Long orderId, String username, String paymentMethod);
+    /**
+     * 管理员直接修改订单状态；取消或退款时同样归还库存、退回余额并通知用户
+     */
+    void overrideStatus(Long orderId, OrderStatus target);
+
+    void payOrder(Long orderId, AuthUser payer, String paymentMethod);
 
     List<RefundDetailVO> getPendingRefundsWithDetails();
+
+    Map<String, Object> getPendingRefundPage(int page, int size, String sortBy, String direction);
     
     List<OrderRecord> getMyOrders(String username);
+
+    CursorPage<OrderSummaryVO> getMyOrderSummaries(String username, String cursor, int size);
+
     void deleteOrder(Long orderId, String username);
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.exception.QueueFullException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 密码哈希专用线程池
+ * BCrypt 每次耗时数十毫秒 CPU，登录高峰时若直接跑在 Tomcat 线程上会挤占下单请求。
+ * 这里把哈希放到固定大小的线程池和有界队列中执行，队列满或等待超时立即返回 429。
+ * 校验成功的凭据以 HMAC 摘要缓存一段时间，同一用户用同一密码再次登录时不再运行 BCrypt；
+ * 摘要包含库中的密码哈希，改密后旧摘要自然失效。
+ */
+@Service
+public class PasswordHashingService implements MetricsSource {
+
+    private final PasswordEncoder passwordEncoder;
+
+    /** 0 表示按 CPU 核数的一半，给请求线程留出余量 */
+    @Value("${auth.hash.threads:0}")
+    private int threads;
+
+    @Value("${auth.hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${auth.hash.timeout-ms:3000}")
+    private long timeoutMs;
+
+    @Value("${auth.hash.verified-ttl-minutes:30}")
+    private long verifiedTtlMinutes;
+
+    @Value("${auth.hash.verified-max-size:10000}")
+    private int verifiedMaxSize;
+
+    private ThreadPoolExecutor executor;
+    private SecretKeySpec macKey;
+
+    /** 用户名 -> 最近一次校验成功的凭据摘要 */
+    private final ConcurrentHashMap<String, Verified> verified = new ConcurrentHashMap<>();
+
+    private final LongAdder hashed = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @PostConstruct
+    public void start() {
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        macKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 校验密码；最近校验成功过的相同凭据直接通过，不再运行 BCrypt
+     *
+     * @throws QueueFullException 哈希线程池繁忙
+     */
+    public boolean matches(String username, String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        byte[] digest = credentialDigest(username, rawPassword, encodedPassword);
+        Verified entry = verified.get(username);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()
+                && MessageDigest.isEqual(entry.digest, digest)) {
+            cacheHits.increment();
+            return true;
+        }
+
+        boolean ok = run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+        if (ok) {
+            if (verified.size() >= verifiedMaxSize) {
+                evictExpired();
+            }
+            if (verified.size() < verifiedMaxSize) {
+                verified.put(username, new Verified(digest,
+                        System.currentTimeMillis() + verifiedTtlMinutes * 60000));
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * 计算密码哈希（注册、改密）
+     *
+     * @throws QueueFullException 哈希线程池繁忙
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * 丢弃该用户已缓存的凭据（改密、删除用户时调用）
+     */
+    public void forget(String username) {
+        verified.remove(username);
+    }
+
+    @Scheduled(fixedRate = 300000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(v -> v.expiresAt <= now);
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new QueueFullException("登录人数过多，请稍后重试", 1);
+        }
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            hashed.increment();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new QueueFullException("登录人数过多，请稍后重试", 1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("密码校验失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求被中断");
+        }
+    }
+
+    private byte[] credentialDigest(String username, String rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(macKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(rawPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(encodedPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("凭据摘要计算失败", e);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "passwordHashing";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", executor.getCorePoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("hashed", hashed.sum());
+        metrics.put("cacheHits", cacheHits.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("timedOut", timedOut.sum());
+        metrics.put("verifiedSize", verified.size());
+        return metrics;
+    }
+
+    private static class Verified {
+        final byte[] digest;
+        final long expiresAt;
+
+        Verified(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
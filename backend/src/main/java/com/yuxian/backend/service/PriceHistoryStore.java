@@ -0,0 +1,267 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.PriceRollup;
+import com.yuxian.backend.entity.PriceSeriesChunk;
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.event.ProductChangedEvent;
+import com.yuxian.backend.repository.PriceRollupRepository;
+import com.yuxian.backend.repository.PriceSeriesChunkRepository;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.utils.DeltaCodec;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品价格时间序列存储
+ * 每次价格变化追加到按商品分块的差值编码记录中，同时更新每日收盘价汇总；
+ * 走势图只读取汇总行，历史再长也不影响读取速度。
+ */
+@Service
+public class PriceHistoryStore {
+
+    static final int RING_DAYS = 366;
+    private static final int CHUNK_CAPACITY = 512;
+    private static final int WEEKS_PER_YEAR = 52;
+
+    private final PriceSeriesChunkRepository chunkRepository;
+    private final PriceRollupRepository rollupRepository;
+    private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final TransactionTemplate transactionTemplate;
+
+    /** 商品最近一次记录的价格（分），用于跳过价格未变化的保存 */
+    private final Map<Long, Long> lastCents = new ConcurrentHashMap<>();
+
+    public PriceHistoryStore(PriceSeriesChunkRepository chunkRepository,
+            PriceRollupRepository rollupRepository,
+            ProductRepository productRepository,
+            ProductCatalog productCatalog,
+            TransactionTemplate transactionTemplate) {
+        this.chunkRepository = chunkRepository;
+        this.rollupRepository = rollupRepository;
+        this.productRepository = productRepository;
+        this.productCatalog = productCatalog;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 启动时加载各商品最新价格，并为尚无记录的商品写入当前价格作为起点；
+     * 每个商品单独一个事务，行锁只持有到该商品写完，不会在启动期间锁住整张商品表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        for (PriceRollup rollup : rollupRepository.findAll()) {
+            lastCents.put(rollup.getProductId(), closeAt(rollup.getDailyCloses(), rollup.getLastDay()));
+        }
+        Instant now = Instant.now();
+        for (Product product : productCatalog.current().getProducts()) {
+            if (product.getPrice() != null && !lastCents.containsKey(product.getId())) {
+                try {
+                    transactionTemplate.executeWithoutResult(
+                            status -> record(product.getId(), product.getPrice(), now));
+                } catch (RuntimeException e) {
+                    System.err.println("商品 " + product.getId() + " 初始价格记录失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.SAVED) {
+            return;
+        }
+        productRepository.findById(event.getProductId()).ifPresent(product -> {
+            if (product.getPrice() != null) {
+                record(product.getId(), product.getPrice(), Instant.now());
+            }
+        });
+    }
+
+    /**
+     * 追加一次价格变化；同一商品的写入先锁商品行再读改写未封块与汇总行，
+     * 并发变价不会丢点，也不会同时新建两个未封块
+     */
+    @Transactional
+    public void record(Long productId, BigDecimal price, Instant at) {
+        long cents = price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        if (cents < 0 || cents > Integer.MAX_VALUE) {
+            // 汇总环每天只有 4 字节，超出 int 范围的价格不记录，避免写入溢出后的错误收盘价
+            System.err.println("商品 " + productId + " 价格 " + price + " 超出走势记录范围，已跳过");
+            return;
+        }
+        if (isUnchanged(productId, cents) || productRepository.lockById(productId) == null
+                || isUnchanged(productId, cents)) {
+            return;
+        }
+        appendTick(productId, at.getEpochSecond(), cents);
+        updateRollup(productId, LocalDate.ofInstant(at, ZoneId.systemDefault()).toEpochDay(), cents);
+        lastCents.put(productId, cents);
+    }
+
+    private boolean isUnchanged(Long productId, long cents) {
+        Long last = lastCents.get(productId);
+        return last != null && last == cents;
+    }
+
+    /**
+     * 截至 today 的最近 days 天每日收盘价；早于首条记录的日期不返回
+     */
+    public DailySeries dailyCloses(Long productId, int days, LocalDate today) {
+        PriceRollup rollup = rollupRepository.findById(productId).orElse(null);
+        long end = today.toEpochDay();
+        if (rollup == null) {
+            return new DailySeries(end + 1, new double[0]);
+        }
+        long start = Math.max(end - days + 1, Math.max(rollup.getFirstDay(), rollup.getLastDay() - RING_DAYS + 1));
+        if (start > end) {
+            return new DailySeries(end + 1, new double[0]);
+        }
+        double[] closes = new double[(int) (end - start + 1)];
+        for (long day = start; day <= end; day++) {
+            long cents = closeAt(rollup.getDailyCloses(), Math.min(day, rollup.getLastDay()));
+            closes[(int) (day - start)] = cents / 100.0;
+        }
+        return new DailySeries(start, closes);
+    }
+
+    /**
+     * 最近一年按周降采样（每 7 天取一个收盘价，以 today 对齐）
+     */
+    public DailySeries weeklyCloses(Long productId, LocalDate today) {
+        DailySeries daily = dailyCloses(productId, WEEKS_PER_YEAR * 7, today);
+        int n = daily.closes.length;
+        int weeks = (n + 6) / 7;
+        double[] closes = new double[weeks];
+        int offset = n - 1 - (weeks - 1) * 7;
+        for (int i = 0; i < weeks; i++) {
+            closes[i] = daily.closes[offset + i * 7];
+        }
+        return new DailySeries(daily.firstEpochDay + offset, closes, 7);
+    }
+
+    /**
+     * 读取全部原始变更点，按时间升序
+     */
+    public List<long[]> readTicks(Long productId) {
+        List<long[]> ticks = new ArrayList<>();
+        for (PriceSeriesChunk chunk : chunkRepository.findByProductIdOrderByStartEpochSecondAsc(productId)) {
+            long time = chunk.getStartEpochSecond();
+            long cents = chunk.getFirstPriceCents();
+            ticks.add(new long[] { time, cents });
+            byte[] times = chunk.getTimeDeltas();
+            byte[] prices = chunk.getPriceDeltas();
+            int[] timePos = { 0 };
+            int[] pricePos = { 0 };
+            for (int i = 1; i < chunk.getPointCount(); i++) {
+                time += DeltaCodec.readVarLong(times, timePos);
+                cents += DeltaCodec.readVarLong(prices, pricePos);
+                ticks.add(new long[] { time, cents });
+            }
+        }
+        return ticks;
+    }
+
+    private void appendTick(Long productId, long epochSecond, long cents) {
+        PriceSeriesChunk chunk = chunkRepository.findFirstByProductIdAndSealedFalse(productId);
+        if (chunk == null) {
+            chunk = new PriceSeriesChunk();
+            chunk.setProductId(productId);
+            chunk.setStartEpochSecond(epochSecond);
+            chunk.setFirstPriceCents(cents);
+            chunk.setPointCount(1);
+            chunk.setTimeDeltas(new byte[0]);
+            chunk.setPriceDeltas(new byte[0]);
+        } else {
+            chunk.setTimeDeltas(DeltaCodec.append(chunk.getTimeDeltas(), epochSecond - chunk.getLastEpochSecond()));
+            chunk.setPriceDeltas(DeltaCodec.append(chunk.getPriceDeltas(), cents - chunk.getLastPriceCents()));
+            chunk.setPointCount(chunk.getPointCount() + 1);
+            chunk.setSealed(chunk.getPointCount() >= CHUNK_CAPACITY);
+        }
+        chunk.setLastEpochSecond(epochSecond);
+        chunk.setLastPriceCents(cents);
+        chunkRepository.save(chunk);
+    }
+
+    private void updateRollup(Long productId, long day, long cents) {
+        PriceRollup rollup = rollupRepository.findById(productId).orElse(null);
+        if (rollup == null) {
+            rollup = new PriceRollup();
+            rollup.setProductId(productId);
+            rollup.setFirstDay(day);
+            rollup.setLastDay(day);
+            rollup.setDailyCloses(new byte[RING_DAYS * 4]);
+        }
+        byte[] closes = rollup.getDailyCloses().clone();
+        long lastDay = rollup.getLastDay();
+        if (day > lastDay) {
+            // 中间没有变价的日子沿用上一日收盘价
+            long carried = closeAt(closes, lastDay);
+            for (long d = Math.max(lastDay + 1, day - RING_DAYS + 1); d < day; d++) {
+                putClose(closes, d, carried);
+            }
+            lastDay = day;
+        }
+        putClose(closes, lastDay, cents);
+        rollup.setLastDay(lastDay);
+        rollup.setFirstDay(Math.max(rollup.getFirstDay(), lastDay - RING_DAYS + 1));
+        rollup.setDailyCloses(closes);
+        rollupRepository.save(rollup);
+    }
+
+    private static long closeAt(byte[] closes, long day) {
+        return ByteBuffer.wrap(closes).getInt((int) Math.floorMod(day, RING_DAYS) * 4);
+    }
+
+    private static void putClose(byte[] closes, long day, long cents) {
+        ByteBuffer.wrap(closes).putInt((int) Math.floorMod(day, RING_DAYS) * 4, Math.toIntExact(cents));
+    }
+
+    /**
+     * 等间隔价格序列：第 i 个点对应 firstEpochDay + i * stepDays
+     */
+    public static class DailySeries {
+        private final long firstEpochDay;
+        private final double[] closes;
+        private final int stepDays;
+
+        DailySeries(long firstEpochDay, double[] closes) {
+            this(firstEpochDay, closes, 1);
+        }
+
+        DailySeries(long firstEpochDay, double[] closes, int stepDays) {
+            this.firstEpochDay = firstEpochDay;
+            this.closes = closes;
+            this.stepDays = stepDays;
+        }
+
+        public int size() {
+            return closes.length;
+        }
+
+        public LocalDate dayAt(int i) {
+            return LocalDate.ofEpochDay(firstEpochDay + (long) i * stepDays);
+        }
+
+        public double closeAt(int i) {
+            return closes[i];
+        }
+    }
+}
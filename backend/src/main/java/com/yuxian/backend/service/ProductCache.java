@@ -0,0 +1,67 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.event.ProductChangedEvent;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.utils.SingleFlightCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+
+/**
+ * 商品详情读穿缓存
+ * 同一商品并发未命中时只有一个线程查库，其余线程等待同一结果（single-flight），防止热点商品击穿数据库。
+ * 条目有 TTL 与容量上限；商品保存、删除或库存变化提交后立即失效。
+ */
+@Service
+public class ProductCache implements MetricsSource {
+
+    private final ProductRepository productRepository;
+
+    @Value("${product.cache.max-size:5000}")
+    private int maxSize;
+
+    @Value("${product.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private SingleFlightCache<Long, Product> cache;
+
+    public ProductCache(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = new SingleFlightCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    /**
+     * 读取商品，不存在时返回 null（不缓存空结果）
+     */
+    public Product get(Long id) {
+        return cache.get(id, key -> productRepository.findById(key).orElse(null));
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "productCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return cache.getMetrics();
+    }
+}
@@ -0,0 +1,250 @@
+package com.yuxian.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuxian.backend.dto.CursorPage;
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.event.ProductChangedEvent;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.utils.CursorCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品目录内存快照
+ * 商品列表与分类列表直接返回预先序列化好的 JSON 字节，不再每次请求都查库、序列化。
+ * 快照不可变，重建时整体替换；商品写入后立即失效，库存累计变动超过阈值后失效。
+ * 快照内另按 (listDate, id) 倒序预排好全部商品与各分类，供游标分页直接二分定位。
+ */
+@Service
+public class ProductCatalog {
+
+    private static final byte[] EMPTY_JSON = "[]".getBytes(StandardCharsets.UTF_8);
+
+    /** 上架日期倒序，同日按 ID 倒序；无上架日期的排在最后 */
+    static final Comparator<Product> LISTING_ORDER = Comparator
+            .comparingLong(ProductCatalog::listDateKey).reversed()
+            .thenComparing(Product::getId, Comparator.reverseOrder());
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${catalog.snapshot.stock-threshold:50}")
+    private int stockThreshold;
+
+    private volatile Snapshot snapshot;
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final AtomicInteger pendingStockChange = new AtomicInteger();
+    private final AtomicLong versionSeq = new AtomicLong();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public ProductCatalog(ProductRepository productRepository, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        current();
+    }
+
+    /**
+     * 获取当前快照
+     * 已有快照但已失效时，只有一个线程负责重建，其余线程继续读旧快照，避免重建期间请求排队。
+     */
+    public Snapshot current() {
+        Snapshot s = snapshot;
+        if (s != null && !dirty.get()) {
+            return s;
+        }
+        if (s != null) {
+            if (!rebuildLock.tryLock()) {
+                return s;
+            }
+        } else {
+            rebuildLock.lock();
+        }
+        try {
+            if (snapshot == null || dirty.get()) {
+                // 先清标记再加载，重建期间到达的变更会重新置脏
+                dirty.set(false);
+                snapshot = build();
+            }
+            return snapshot;
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public void invalidate() {
+        pendingStockChange.set(0);
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK) {
+            int accumulated = pendingStockChange.addAndGet(Math.abs(event.getStockDelta()));
+            if (accumulated < stockThreshold) {
+                return;
+            }
+        }
+        invalidate();
+    }
+
+    private Snapshot build() {
+        List<Product> products = productRepository.findAll();
+
+        Map<Long, Product> byId = new HashMap<>();
+        Map<String, List<Product>> byCategory = new LinkedHashMap<>();
+        for (Product p : products) {
+            byId.put(p.getId(), p);
+            if (p.getCategory() != null) {
+                byCategory.computeIfAbsent(p.getCategory(), k -> new ArrayList<>()).add(p);
+            }
+        }
+
+        Map<String, byte[]> categoryJson = new HashMap<>();
+        Map<String, List<Product>> sortedByCategory = new HashMap<>();
+        for (Map.Entry<String, List<Product>> entry : byCategory.entrySet()) {
+            categoryJson.put(entry.getKey(), toJson(entry.getValue()));
+            List<Product> sorted = new ArrayList<>(entry.getValue());
+            sorted.sort(LISTING_ORDER);
+            sortedByCategory.put(entry.getKey(), Collections.unmodifiableList(sorted));
+        }
+
+        List<Product> sortedAll = new ArrayList<>(products);
+        sortedAll.sort(LISTING_ORDER);
+
+        return new Snapshot(versionSeq.incrementAndGet(),
+                Collections.unmodifiableList(products),
+                Collections.unmodifiableMap(byId),
+                toJson(products),
+                Collections.unmodifiableMap(categoryJson),
+                Collections.unmodifiableList(sortedAll),
+                Collections.unmodifiableMap(sortedByCategory));
+    }
+
+    static long listDateKey(Product product) {
+        return product.getListDate() != null ? product.getListDate().toEpochDay() : Long.MIN_VALUE;
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("商品目录序列化失败", e);
+        }
+    }
+
+    /**
+     * 不可变快照，其中的 Product 对象为共享只读实例，调用方不得修改
+     */
+    public static class Snapshot {
+        private final long version;
+        private final List<Product> products;
+        private final Map<Long, Product> byId;
+        private final byte[] allJson;
+        private final Map<String, byte[]> categoryJson;
+        private final List<Product> sortedAll;
+        private final Map<String, List<Product>> sortedByCategory;
+
+        Snapshot(long version, List<Product> products, Map<Long, Product> byId, byte[] allJson,
+                Map<String, byte[]> categoryJson, List<Product> sortedAll,
+                Map<String, List<Product>> sortedByCategory) {
+            this.version = version;
+            this.products = products;
+            this.byId = byId;
+            this.allJson = allJson;
+            this.categoryJson = categoryJson;
+            this.sortedAll = sortedAll;
+            this.sortedByCategory = sortedByCategory;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<Product> getProducts() {
+            return products;
+        }
+
+        public Product getProduct(Long id) {
+            return byId.get(id);
+        }
+
+        public byte[] getAllJson() {
+            return allJson;
+        }
+
+        public byte[] getCategoryJson(String category) {
+            return categoryJson.getOrDefault(category, EMPTY_JSON);
+        }
+
+        /**
+         * 按 (listDate, id) 倒序游标分页
+         *
+         * @param category 分类，为 null 时分页全部商品
+         * @param cursor   上一页返回的游标，为 null 时从第一页开始
+         */
+        public CursorPage<Product> page(String category, String cursor, int size) {
+            List<Product> list = category == null
+                    ? sortedAll
+                    : sortedByCategory.getOrDefault(category, Collections.emptyList());
+
+            int from = 0;
+            if (cursor != null) {
+                long[] key = CursorCodec.decode(cursor, 2);
+                from = firstAfter(list, key[0], key[1]);
+            }
+            int to = Math.min(from + size, list.size());
+            List<Product> items = list.subList(from, to);
+
+            String next = null;
+            if (to < list.size() && to > from) {
+                Product last = list.get(to - 1);
+                next = CursorCodec.encode(listDateKey(last), last.getId());
+            }
+            return new CursorPage<>(items, next);
+        }
+
+        /**
+         * 二分查找排在游标 (day, id) 之后的第一个位置
+         */
+        private static int firstAfter(List<Product> list, long day, long id) {
+            int lo = 0;
+            int hi = list.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                Product p = list.get(mid);
+                long pDay = listDateKey(p);
+                boolean after = pDay < day || (pDay == day && p.getId() < id);
+                if (after) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.yuxian.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuxian.backend.entity.Product;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 商品溯源洞察数据引擎
+ * 每个商品在同一天、同一目录快照下只计算一次，结果直接序列化为 JSON 字节保存在不可变对象中；
+ * 价格走势取自 {@link PriceHistoryStore} 的每日收盘价，当天取商品当前价格。
+ * 缓存按 LRU 限制容量，跨天自动失效；条目记录计算时的商品目录快照版本，目录重建后自动失效，
+ * 不依赖与 {@link ProductCatalog} 的事件监听先后顺序。
+ */
+@Service
+public class ProductInsightEngine {
+
+    private static final int MAX_ENTRIES = 2000;
+    private static final int PRICE_DAYS = 7;
+    private static final int TRAJECTORY_STEPS = 40;
+    private static final byte[] EMPTY_JSON = "{}".getBytes(StandardCharsets.UTF_8);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MM-dd");
+
+    private static final Map<String, double[]> PORT_COORDINATES = new HashMap<>();
+    static {
+        PORT_COORDINATES.put("大连", new double[] { 121.6147, 38.9140 });
+        PORT_COORDINATES.put("山东", new double[] { 120.3826, 36.0671 });
+        PORT_COORDINATES.put("舟山", new double[] { 122.2965, 29.9511 });
+        PORT_COORDINATES.put("东海", new double[] { 122.2965, 29.9511 });
+        PORT_COORDINATES.put("福建", new double[] { 119.2965, 26.0745 });
+        PORT_COORDINATES.put("广东", new double[] { 113.2644, 23.1291 });
+        PORT_COORDINATES.put("湛江", new double[] { 110.3594, 21.2707 });
+        PORT_COORDINATES.put("海南", new double[] { 110.1999, 20.0440 });
+        PORT_COORDINATES.put("进口", new double[] { 121.4737, 31.2304 });
+        PORT_COORDINATES.put("远洋", new double[] { 121.4737, 31.2304 });
+        PORT_COORDINATES.put("DEFAULT", new double[] { 122.2965, 29.9511 });
+    }
+
+    private final ProductCatalog productCatalog;
+    private final PriceHistoryStore priceHistoryStore;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, Insight> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Insight> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public ProductInsightEngine(ProductCatalog productCatalog, PriceHistoryStore priceHistoryStore,
+            ObjectMapper objectMapper) {
+        this.productCatalog = productCatalog;
+        this.priceHistoryStore = priceHistoryStore;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 获取商品洞察数据的 JSON 字节，商品不存在时返回 {}
+     */
+    public byte[] getInsightJson(Long productId) {
+        LocalDate today = LocalDate.now();
+        ProductCatalog.Snapshot snapshot = productCatalog.current();
+        synchronized (cache) {
+            Insight cached = cache.get(productId);
+            if (cached != null && cached.day.equals(today) && cached.catalogVersion == snapshot.getVersion()) {
+                return cached.json;
+            }
+        }
+
+        Product product = snapshot.getProduct(productId);
+        if (product == null) {
+            return EMPTY_JSON;
+        }
+
+        Insight insight = compute(product, today, snapshot.getVersion());
+        synchronized (cache) {
+            cache.put(productId, insight);
+        }
+        return insight.json;
+    }
+
+    private Insight compute(Product product, LocalDate today, long catalogVersion) {
+        long id = product.getId();
+        double currentPrice = product.getPrice() != null ? product.getPrice().doubleValue() : 0.0;
+
+        PriceHistoryStore.DailySeries series = priceHistoryStore.dailyCloses(id, PRICE_DAYS, today);
+        int days = Math.max(series.size(), 1);
+        long firstDay = today.toEpochDay() - days + 1;
+        double[] prices = new double[days];
+        for (int i = 0; i < series.size(); i++) {
+            prices[i] = series.closeAt(i);
+        }
+        prices[days - 1] = currentPrice;
+
+        String origin = product.getOrigin() != null ? product.getOrigin() : "";
+        double[] port = PORT_COORDINATES.get("DEFAULT");
+        for (Map.Entry<String, double[]> entry : PORT_COORDINATES.entrySet()) {
+            if (origin.contains(entry.getKey())) {
+                port = entry.getValue();
+                break;
+            }
+        }
+        boolean isImport = origin.contains("进口") || origin.contains("大西洋") || origin.contains("远洋")
+                || origin.contains("美洲");
+
+        // 同一商品同一天内轨迹、环境数据保持一致
+        Random rnd = new Random(id * 31 + today.toEpochDay());
+        double endLng = port[0];
+        double endLat = port[1];
+        double startLng;
+        double startLat;
+        if (isImport) {
+            startLng = endLng + 15.0 + rnd.nextDouble() * 5.0;
+            startLat = endLat - 10.0 + rnd.nextDouble() * 5.0;
+        } else {
+            startLng = endLng + 3.0 + rnd.nextDouble() * 2.0;
+            startLat = endLat + (rnd.nextDouble() - 0.5) * 4.0;
+        }
+
+        double[] lngs = new double[TRAJECTORY_STEPS + 1];
+        double[] lats = new double[TRAJECTORY_STEPS + 1];
+        double curveIntensity = isImport ? 2.5 : 0.5;
+        for (int i = 0; i <= TRAJECTORY_STEPS; i++) {
+            double ratio = (double) i / TRAJECTORY_STEPS;
+            double curve = Math.sin(ratio * Math.PI) * curveIntensity;
+            lngs[i] = startLng + (endLng - startLng) * ratio - curve;
+            lats[i] = startLat + (endLat - startLat) * ratio + (rnd.nextDouble() - 0.5) * 0.05;
+        }
+
+        double waterTemp = 16.0 + rnd.nextDouble() * 4;
+        double salinity = 3.2 + rnd.nextDouble() * 0.3;
+        double windSpeed = 2.0 + rnd.nextDouble() * 5;
+        boolean sunny = rnd.nextBoolean();
+        String hash = "0x" + Long.toHexString(rnd.nextLong()).toUpperCase() + "...VERIFIED";
+
+        byte[] json = write(id, today, firstDay, prices, lngs, lats, waterTemp, salinity, windSpeed, sunny, hash);
+        return new Insight(today, catalogVersion, json);
+    }
+
+    private byte[] write(long id, LocalDate today, long firstDay, double[] prices, double[] lngs, double[] lats,
+            double waterTemp, double salinity, double windSpeed, boolean sunny, String hash) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+
+            gen.writeArrayFieldStart("priceHistory");
+            for (int i = 0; i < prices.length; i++) {
+                gen.writeStartObject();
+                gen.writeStringField("date", LocalDate.ofEpochDay(firstDay + i).format(DAY_FORMAT));
+                gen.writeNumberField("price", prices[i]);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+
+            LocalDate catchDate = today.minusDays(2);
+            LocalDate transitDate = today.minusDays(1);
+            gen.writeArrayFieldStart("traceEvents");
+            writeTraceEvent(gen, catchDate + " 04:30", "捕捞作业完成", "作业渔船：浙普渔" + (60000 + id * 123) + "号");
+            writeTraceEvent(gen, transitDate + " 09:15", "港口卸货入库", "鲜度等级：特A级");
+            writeTraceEvent(gen, today + " 02:00", "全程冷链运输中", "库温：-18.5°C");
+            writeTraceEvent(gen, today + " 08:00", "到达城市前置仓", "已上架");
+            gen.writeEndArray();
+
+            gen.writeArrayFieldStart("trajectory");
+            for (int i = 0; i < lngs.length; i++) {
+                gen.writeStartArray();
+                gen.writeNumber(lngs[i]);
+                gen.writeNumber(lats[i]);
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+
+            gen.writeObjectFieldStart("environment");
+            gen.writeStringField("waterTemp", String.format("%.1f", waterTemp));
+            gen.writeStringField("salinity", String.format("%.1f", salinity));
+            gen.writeStringField("windSpeed", String.format("%.1f", windSpeed));
+            gen.writeStringField("weather", sunny ? "晴朗" : "多云");
+            gen.writeEndObject();
+
+            gen.writeStringField("blockchainHash", hash);
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new RuntimeException("商品洞察数据序列化失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeTraceEvent(JsonGenerator gen, String time, String title, String desc) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("time", time);
+        gen.writeStringField("title", title);
+        gen.writeStringField("desc", desc);
+        gen.writeEndObject();
+    }
+
+    /**
+     * 单个商品当天的洞察数据，JSON 字节在构建后不再修改
+     */
+    static class Insight {
+        final LocalDate day;
+        final long catalogVersion;
+        final byte[] json;
+
+        Insight(LocalDate day, long catalogVersion, byte[] json) {
+            this.day = day;
+            this.catalogVersion = catalogVersion;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.event.ProductChangedEvent;
+import com.yuxian.backend.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品全文检索倒排索引
+ * 中文与英文/数字都按单字 + 二元组（bigram）切分，词中任意片段都能命中，与原 LIKE 子串匹配一致；
+ * 名称、分类、产地、描述按不同权重计入词频，使用 BM25 打分。
+ * 查询中的所有词项都必须命中（AND 语义），商品保存/删除后增量更新。
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float ORIGIN_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private final ProductCatalog productCatalog;
+    private final ProductRepository productRepository;
+
+    /** 词项 -> (商品ID -> 加权词频) */
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    /** 商品ID -> 该商品的全部词项，删除/更新时用于清理倒排表 */
+    private final Map<Long, Set<String>> docTerms = new HashMap<>();
+    private final Map<Long, Float> docLengths = new HashMap<>();
+    private double totalLength = 0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductSearchIndex(ProductCatalog productCatalog, ProductRepository productRepository) {
+        this.productCatalog = productCatalog;
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productCatalog.current().getProducts();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docTerms.clear();
+            docLengths.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK) {
+            return;
+        }
+        Product product = event.getType() == ProductChangedEvent.Type.DELETED
+                ? null
+                : productRepository.findById(event.getProductId()).orElse(null);
+        if (product == null) {
+            remove(event.getProductId());
+        } else {
+            index(product);
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按相关度降序返回命中的商品ID
+     *
+     * @param keyword 搜索关键字
+     * @param limit   最多返回条数
+     */
+    public List<Long> search(String keyword, int limit) {
+        List<Hit> hits = searchHits(keyword, limit);
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            ids.add(hit.getProductId());
+        }
+        return ids;
+    }
+
+    /**
+     * 按相关度降序（同分按 ID 升序）返回命中结果及得分
+     */
+    public List<Hit> searchHits(String keyword, int limit) {
+        List<String> terms = new ArrayList<>(tokenize(keyword, true));
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Float>> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, Float> list = postings.get(term);
+                if (list == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(list);
+            }
+
+            // 从最短的倒排表出发求交集
+            Map<Long, Float> shortest = lists.get(0);
+            for (Map<Long, Float> list : lists) {
+                if (list.size() < shortest.size()) {
+                    shortest = list;
+                }
+            }
+
+            int docCount = docLengths.size();
+            double avgLength = docCount == 0 ? 1 : totalLength / docCount;
+            double[] idf = new double[lists.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                double df = lists.get(i).size();
+                idf[i] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            outer:
+            for (Long docId : shortest.keySet()) {
+                double lengthNorm = K1 * (1 - B + B * docLengths.get(docId) / avgLength);
+                double score = 0;
+                for (int i = 0; i < lists.size(); i++) {
+                    Float tf = lists.get(i).get(docId);
+                    if (tf == null) {
+                        continue outer;
+                    }
+                    score += idf[i] * tf * (K1 + 1) / (tf + lengthNorm);
+                }
+                hits.add(new Hit(docId, score));
+            }
+
+            hits.sort((a, b) -> {
+                int cmp = Double.compare(b.score, a.score);
+                return cmp != 0 ? cmp : Long.compare(a.productId, b.productId);
+            });
+            return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static class Hit {
+        private final long productId;
+        private final double score;
+
+        Hit(long productId, double score) {
+            this.productId = productId;
+            this.score = score;
+        }
+
+        public long getProductId() {
+            return productId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private void addDocument(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        Map<String, Float> tf = new HashMap<>();
+        float length = 0;
+        length += accumulate(tf, product.getName(), NAME_WEIGHT);
+        length += accumulate(tf, product.getCategory(), CATEGORY_WEIGHT);
+        length += accumulate(tf, product.getOrigin(), ORIGIN_WEIGHT);
+        length += accumulate(tf, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        for (Map.Entry<String, Float> entry : tf.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(product.getId(), entry.getValue());
+        }
+        docTerms.put(product.getId(), tf.keySet());
+        docLengths.put(product.getId(), length);
+        totalLength += length;
+    }
+
+    private void removeDocument(Long productId) {
+        Set<String> terms = docTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Float> list = postings.get(term);
+            if (list != null) {
+                list.remove(productId);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Float length = docLengths.remove(productId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+
+    private float accumulate(Map<String, Float> tf, String text, float weight) {
+        List<String> tokens = tokenize(text, false);
+        for (String token : tokens) {
+            tf.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    /**
+     * 切词：连续汉字、连续字母数字各自成串，每串输出单字与相邻二元组，两类字符之间不组二元组。
+     * 查询模式下，两个字以上的串只保留二元组，以提高区分度。
+     */
+    static List<String> tokenize(String text, boolean query) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        int n = lower.length();
+        while (i < n) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                boolean han = isHan(c);
+                int start = i;
+                while (i < n && Character.isLetterOrDigit(lower.charAt(i)) && isHan(lower.charAt(i)) == han) {
+                    i++;
+                }
+                int runLength = i - start;
+                if (!query || runLength == 1) {
+                    for (int j = start; j < i; j++) {
+                        tokens.add(String.valueOf(lower.charAt(j)));
+                    }
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    tokens.add(lower.substring(j, j + 2));
+                }
+            } else {
+                i++;
+            }
+        }
+        return query ? new ArrayList<>(new LinkedHashSet<>(tokens)) : tokens;
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+}
@@ -0,0 +1,218 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.repository.OrderRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 首页"每日推荐"采样器
+ * 按库存与近 7 天销量为商品加权，构建 Walker 别名表，O(1) 抽样，不再依赖 ORDER BY RAND()。
+ * 别名表随商品目录快照版本重建；以日期为随机种子，并缓存当天结果，保证同一天内推荐稳定。
+ */
+@Service
+public class RecommendationSampler {
+
+    private static final int SALES_WINDOW_DAYS = 7;
+    private static final long SALES_REFRESH_INTERVAL_MS = 10 * 60 * 1000L;
+
+    private final ProductCatalog productCatalog;
+    private final OrderRepository orderRepository;
+
+    private volatile AliasTable table;
+    private volatile DailyPick dailyPick;
+
+    private volatile Map<Long, Long> recentSales = new HashMap<>();
+    private volatile long salesLoadedAt = 0;
+
+    public RecommendationSampler(ProductCatalog productCatalog, OrderRepository orderRepository) {
+        this.productCatalog = productCatalog;
+        this.orderRepository = orderRepository;
+    }
+
+    public List<Product> recommend(int count) {
+        ProductCatalog.Snapshot snapshot = productCatalog.current();
+        LocalDate today = LocalDate.now();
+
+        // 按请求条数而不是结果条数匹配：可抽样商品少于 count 时结果会变短，仍应命中当天缓存
+        DailyPick pick = dailyPick;
+        if (pick != null && pick.day.equals(today) && pick.count == count) {
+            List<Product> products = resolve(snapshot, pick.ids);
+            if (products.size() == pick.ids.size()) {
+                return products;
+            }
+        }
+
+        synchronized (this) {
+            AliasTable current = tableFor(snapshot);
+            List<Long> ids = current.sample(new Random(today.toEpochDay() * 31L + 17), count);
+            dailyPick = new DailyPick(today, count, ids);
+            return resolve(snapshot, ids);
+        }
+    }
+
+    private AliasTable tableFor(ProductCatalog.Snapshot snapshot) {
+        AliasTable current = table;
+        boolean salesExpired = System.currentTimeMillis() - salesLoadedAt > SALES_REFRESH_INTERVAL_MS;
+        if (current == null || current.catalogVersion != snapshot.getVersion() || salesExpired) {
+            if (salesExpired) {
+                recentSales = loadRecentSales();
+                salesLoadedAt = System.currentTimeMillis();
+            }
+            current = AliasTable.build(snapshot, recentSales);
+            table = current;
+        }
+        return current;
+    }
+
+    private Map<Long, Long> loadRecentSales() {
+        Map<Long, Long> sales = new HashMap<>();
+        LocalDateTime since = LocalDateTime.now().minusDays(SALES_WINDOW_DAYS);
+        for (Object[] row : orderRepository.sumSalesByProductSince(since)) {
+            sales.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return sales;
+    }
+
+    private List<Product> resolve(ProductCatalog.Snapshot snapshot, List<Long> ids) {
+        List<Product> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = snapshot.getProduct(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    private static class DailyPick {
+        final LocalDate day;
+        final int count;
+        final List<Long> ids;
+
+        DailyPick(LocalDate day, int count, List<Long> ids) {
+            this.day = day;
+            this.count = count;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Walker 别名表：prob[i] 为落在第 i 格时保留自身的概率，否则取 alias[i]
+     */
+    static class AliasTable {
+        final long catalogVersion;
+        final long[] ids;
+        final double[] prob;
+        final int[] alias;
+
+        private AliasTable(long catalogVersion, long[] ids, double[] prob, int[] alias) {
+            this.catalogVersion = catalogVersion;
+            this.ids = ids;
+            this.prob = prob;
+            this.alias = alias;
+        }
+
+        static AliasTable build(ProductCatalog.Snapshot snapshot, Map<Long, Long> sales) {
+            List<Product> products = snapshot.getProducts();
+            List<Product> candidates = new ArrayList<>();
+            for (Product p : products) {
+                if (p.getStock() != null && p.getStock() > 0) {
+                    candidates.add(p);
+                }
+            }
+            // 全部售罄时退化为在全部商品中均匀抽样
+            boolean uniform = candidates.isEmpty();
+            if (uniform) {
+                candidates = products;
+            }
+
+            int n = candidates.size();
+            long[] ids = new long[n];
+            double[] weights = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                Product p = candidates.get(i);
+                ids[i] = p.getId();
+                if (uniform) {
+                    weights[i] = 1.0;
+                } else {
+                    long sold = sales.getOrDefault(p.getId(), 0L);
+                    weights[i] = 1.0 + Math.log1p(p.getStock()) + 2.0 * Math.log1p(sold);
+                }
+                sum += weights[i];
+            }
+            return fromWeights(snapshot.getVersion(), ids, weights, sum);
+        }
+
+        static AliasTable fromWeights(long version, long[] ids, double[] weights, double sum) {
+            int n = ids.length;
+            double[] prob = new double[n];
+            int[] alias = new int[n];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            double[] scaled = new double[n];
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / sum;
+                if (scaled[i] < 1.0) {
+                    small.push(i);
+                } else {
+                    large.push(i);
+                }
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int s = small.pop();
+                int l = large.pop();
+                prob[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] = scaled[l] + scaled[s] - 1.0;
+                if (scaled[l] < 1.0) {
+                    small.push(l);
+                } else {
+                    large.push(l);
+                }
+            }
+            while (!large.isEmpty()) {
+                prob[large.pop()] = 1.0;
+            }
+            while (!small.isEmpty()) {
+                prob[small.pop()] = 1.0;
+            }
+            return new AliasTable(version, ids, prob, alias);
+        }
+
+        int next(Random random) {
+            int column = random.nextInt(ids.length);
+            return random.nextDouble() < prob[column] ? column : alias[column];
+        }
+
+        /**
+         * 不放回抽取 count 个不同商品；重复命中时重抽，次数有上限
+         */
+        List<Long> sample(Random random, int count) {
+            int target = Math.min(count, ids.length);
+            Set<Long> picked = new LinkedHashSet<>();
+            int attempts = 0;
+            int maxAttempts = target * 20;
+            while (picked.size() < target && attempts++ < maxAttempts) {
+                picked.add(ids[next(random)]);
+            }
+            // 权重极度倾斜时按顺序补齐
+            for (int i = 0; picked.size() < target && i < ids.length; i++) {
+                picked.add(ids[i]);
+            }
+            return new ArrayList<>(picked);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.dto.RefundAuditResult;
+import com.yuxian.backend.entity.OrderStatus;
+import com.yuxian.backend.entity.RefundFeedback;
+import com.yuxian.backend.entity.WalletLog;
+import com.yuxian.backend.event.ProductChangedEvent;
+import com.yuxian.backend.repository.OrderRepository;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.repository.RefundFeedbackRepository;
+import com.yuxian.backend.repository.UserRepository;
+import com.yuxian.backend.repository.WalletLogRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 售后批量审核
+ * 订单按块处理，每块一个短事务：锁定仍在售后处理中的订单行、一条 UPDATE 改状态；
+ * 通过时按用户汇总退款金额、每个用户一条 UPDATE 入账，按商品汇总数量、每个商品一条 UPDATE 回补库存。
+ * 某一块失败只回滚该块，结果逐单返回；到账通知按用户合并写入发件箱，随该块一起提交。
+ */
+@Service
+public class RefundBatchAuditService {
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final WalletLogRepository walletLogRepository;
+    private final RefundFeedbackRepository refundFeedbackRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationOutbox notificationOutbox;
+    private final StockReservationEngine stockReservationEngine;
+
+    @Value("${refund.batch-audit.chunk-size:200}")
+    private int chunkSize;
+
+    public RefundBatchAuditService(OrderRepository orderRepository,
+            UserRepository userRepository,
+            ProductRepository productRepository,
+            WalletLogRepository walletLogRepository,
+            RefundFeedbackRepository refundFeedbackRepository,
+            ApplicationEventPublisher eventPublisher,
+            TransactionTemplate transactionTemplate,
+            NotificationOutbox notificationOutbox,
+            StockReservationEngine stockReservationEngine) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.walletLogRepository = walletLogRepository;
+        this.refundFeedbackRepository = refundFeedbackRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationOutbox = notificationOutbox;
+        this.stockReservationEngine = stockReservationEngine;
+    }
+
+    /**
+     * 批量审核售后申请，重复的订单ID只处理一次；返回顺序与传入顺序一致
+     */
+    public List<RefundAuditResult> audit(List<Long> orderIds, boolean pass, String reason, String adminUsername) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        Map<Long, RefundAuditResult> results = new LinkedHashMap<>();
+        for (Long id : distinct) {
+            results.put(id, null);
+        }
+
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            try {
+                ChunkResult chunkResult = transactionTemplate
+                        .execute(status -> auditChunk(chunk, pass, reason, adminUsername));
+                for (Long id : chunk) {
+                    results.put(id, chunkResult.processed.contains(id)
+                            ? RefundAuditResult.ok(id, pass ? "退款成功" : "已驳回")
+                            : RefundAuditResult.fail(id, "订单不存在或不在售后流程中"));
+                }
+            } catch (RuntimeException e) {
+                System.err.println("批量售后审核失败，订单 " + chunk + ": " + e.getMessage());
+                for (Long id : chunk) {
+                    results.put(id, RefundAuditResult.fail(id, "处理失败: " + e.getMessage()));
+                }
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    private ChunkResult auditChunk(List<Long> chunk, boolean pass, String reason, String adminUsername) {
+        ChunkResult result = new ChunkResult();
+        List<Object[]> locked = orderRepository.lockPendingRefunds(chunk);
+        if (locked.isEmpty()) {
+            return result;
+        }
+        for (Object[] row : locked) {
+            result.processed.add((Long) row[0]);
+        }
+
+        List<RefundFeedback> feedbacks = new ArrayList<>(locked.size());
+        for (Object[] row : locked) {
+            RefundFeedback feedback = new RefundFeedback();
+            feedback.setOrderId((Long) row[0]);
+            feedback.setType(1);
+            feedback.setOperator(adminUsername);
+            feedback.setContent(pass ? "审核通过" : "审核驳回，原因：" + (reason != null ? reason : "无"));
+            feedbacks.add(feedback);
+        }
+        refundFeedbackRepository.saveAll(feedbacks);
+
+        if (!pass) {
+            orderRepository.updateStatus(result.processed, OrderStatus.REFUND_PENDING, OrderStatus.DELIVERED);
+            return result;
+        }
+        orderRepository.updateStatus(result.processed, OrderStatus.REFUND_PENDING, OrderStatus.REFUNDED);
+
+        for (Object[] row : locked) {
+            BigDecimal amount = (BigDecimal) row[2];
+            if (amount != null) {
+                result.credits.merge((String) row[1], amount, BigDecimal::add);
+            }
+        }
+        userRepository.creditBalances(result.credits);
+
+        Map<String, Long> userIds = new LinkedHashMap<>();
+        for (Object[] row : userRepository.findIdsByUsernames(result.credits.keySet())) {
+            userIds.put((String) row[0], (Long) row[1]);
+        }
+        List<WalletLog> logs = new ArrayList<>(locked.size());
+        for (Object[] row : locked) {
+            Long userId = userIds.get((String) row[1]);
+            if (userId == null || row[2] == null) {
+                continue;
+            }
+            WalletLog log = new WalletLog();
+            log.setUserId(userId);
+            log.setAmount((BigDecimal) row[2]);
+            log.setType(1);
+            log.setDescription("订单退款: " + row[0]);
+            logs.add(log);
+        }
+        walletLogRepository.saveAll(logs);
+        for (Map.Entry<String, BigDecimal> entry : result.credits.entrySet()) {
+            if (userIds.containsKey(entry.getKey())) {
+                notificationOutbox.toUser(entry.getKey(), "【系统消息】您的订单退款已到账，金额：" + entry.getValue());
+            }
+        }
+
+        SortedMap<Long, Integer> restock = orderRepository.sumItemQuantities(result.processed);
+        productRepository.adjustStockBatch(stockReservationEngine.releaseAll(restock));
+        for (Map.Entry<Long, Integer> entry : restock.entrySet()) {
+            eventPublisher.publishEvent(ProductChangedEvent.stock(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    private static class ChunkResult {
+        final Set<Long> processed = new LinkedHashSet<>();
+        final SortedMap<String, BigDecimal> credits = new TreeMap<>();
+    }
+}
@@ -0,0 +1,450 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.event.ProductChangedEvent;
+import com.yuxian.backend.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点商品内存库存预占引擎
+ * 秒杀/大促商品的可售库存拆分到多个分段原子计数器中，下单时无锁 CAS 预占，不再争抢同一行数据库锁；
+ * 事务提交后预占量计入待回写，由定时任务合并成批量 UPDATE 写回 product.stock，事务回滚则归还库存。
+ * 取消、超时、退款等归还库存的操作经 {@link #releaseAll} 先加回内存、再随待回写一起写回数据库，
+ * 热点商品的库存行只由回写任务修改。
+ * 定时对账：数据库库存 - 待回写 - 进行中 应等于内存可售量，连续两次偏差相同才修正，避免读到中间状态误判。
+ */
+@Service
+public class StockReservationEngine implements MetricsSource {
+
+    public enum Result {
+        /** 预占成功 */
+        RESERVED,
+        /** 库存不足 */
+        INSUFFICIENT,
+        /** 非热点商品，由调用方走数据库扣减 */
+        NOT_MANAGED
+    }
+
+    private final ProductRepository productRepository;
+
+    @Value("${stock.reservation.stripes:8}")
+    private int stripeCount;
+
+    @Value("${stock.reservation.hot-product-ids:}")
+    private List<Long> initialHotProducts = Collections.emptyList();
+
+    private final ConcurrentHashMap<Long, StripedStock> hot = new ConcurrentHashMap<>();
+    /** 已停用但仍有进行中预占或待回写量的商品 */
+    private final List<StripedStock> retiring = Collections.synchronizedList(new ArrayList<>());
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rolledBack = new LongAdder();
+    private final LongAdder flushedBatches = new LongAdder();
+    private final LongAdder flushedUnits = new LongAdder();
+    private final LongAdder driftCorrections = new LongAdder();
+
+    public StockReservationEngine(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        for (Long productId : initialHotProducts) {
+            enable(productId);
+        }
+    }
+
+    /**
+     * 将商品切换为内存预占，以数据库当前库存为初始值
+     */
+    public synchronized void enable(Long productId) {
+        if (hot.containsKey(productId)) {
+            return;
+        }
+        Integer stock = productRepository.loadStock(List.of(productId)).get(productId);
+        if (stock == null) {
+            throw new RuntimeException("商品不存在: " + productId);
+        }
+        hot.put(productId, new StripedStock(productId, Math.max(stock, 0), Math.max(stripeCount, 1)));
+        System.out.println(">>> 商品 " + productId + " 切换为内存库存预占，初始库存: " + stock);
+    }
+
+    /**
+     * 恢复为数据库扣减；进行中的预占完成并回写后才真正移除
+     */
+    public synchronized void disable(Long productId) {
+        StripedStock stock = hot.remove(productId);
+        if (stock != null) {
+            stock.retired = true;
+            retiring.add(stock);
+            flush();
+        }
+    }
+
+    public boolean isManaged(Long productId) {
+        return hot.containsKey(productId);
+    }
+
+    /**
+     * 预占库存。存在事务时，提交后计入待回写、回滚时归还；无事务时立即计入待回写。
+     */
+    public Result reserve(Long productId, int quantity) {
+        StripedStock stock = hot.get(productId);
+        if (stock == null) {
+            return Result.NOT_MANAGED;
+        }
+        if (!stock.tryAcquire(quantity)) {
+            rejected.increment();
+            return Result.INSUFFICIENT;
+        }
+        if (stock.retired) {
+            // 预占期间商品被停用，退回后改走数据库扣减
+            stock.release(quantity);
+            return Result.NOT_MANAGED;
+        }
+        reserved.add(quantity);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stock.pending.addAndGet(quantity);
+            return Result.RESERVED;
+        }
+        stock.inFlight.addAndGet(quantity);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    stock.pending.addAndGet(quantity);
+                } else {
+                    stock.release(quantity);
+                    rolledBack.add(quantity);
+                }
+                stock.inFlight.addAndGet(-quantity);
+            }
+        });
+        return Result.RESERVED;
+    }
+
+    /**
+     * 归还库存（取消、超时、退款）。热点商品在事务提交后加回内存，并以负的待回写量写回数据库；
+     * 其余商品原样返回，由调用方直接更新数据库。
+     *
+     * @param restock 商品ID -> 归还数量
+     * @return 需要调用方自行写回数据库的部分
+     */
+    public SortedMap<Long, Integer> releaseAll(SortedMap<Long, Integer> restock) {
+        SortedMap<Long, Integer> unmanaged = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : restock.entrySet()) {
+            if (!release(entry.getKey(), entry.getValue())) {
+                unmanaged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return unmanaged;
+    }
+
+    /**
+     * 归还单个商品的库存，非热点商品返回 false
+     */
+    public boolean release(Long productId, int quantity) {
+        StripedStock stock = hot.get(productId);
+        if (stock == null || quantity <= 0) {
+            return stock != null;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stock.restock(quantity);
+            return true;
+        }
+        // 事务结束前一直留在 retiring 中，停用期间提交的归还也能被回写
+        stock.releasing.addAndGet(quantity);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    stock.restock(quantity);
+                }
+                stock.releasing.addAndGet(-quantity);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 商品被后台编辑时按数据库重新对齐，被删除时停用；库存事件已由 {@link #releaseAll} 处理
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        StripedStock stock = hot.get(event.getProductId());
+        if (stock == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case SAVED:
+                resync(stock);
+                break;
+            case DELETED:
+                disable(event.getProductId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 合并各商品待回写的预占量，一次批量写回数据库；失败时放回待回写，下次重试
+     */
+    @Scheduled(fixedDelayString = "${stock.reservation.flush-interval-ms:200}")
+    public synchronized void flush() {
+        List<StripedStock> all = new ArrayList<>(hot.values());
+        synchronized (retiring) {
+            all.addAll(retiring);
+        }
+
+        SortedMap<Long, Integer> deltas = new TreeMap<>();
+        Map<StripedStock, Integer> drained = new LinkedHashMap<>();
+        for (StripedStock stock : all) {
+            int amount = stock.pending.getAndSet(0);
+            if (amount != 0) {
+                deltas.merge(stock.productId, -amount, Integer::sum);
+                drained.put(stock, amount);
+            }
+        }
+
+        if (!deltas.isEmpty()) {
+            Set<Long> skipped;
+            try {
+                skipped = productRepository.adjustStockBatch(deltas);
+                flushedBatches.increment();
+            } catch (RuntimeException e) {
+                System.err.println("内存库存回写失败，稍后重试: " + e.getMessage());
+                drained.forEach((stock, amount) -> stock.pending.addAndGet(amount));
+                return;
+            }
+            drained.forEach((stock, amount) -> {
+                if (!skipped.contains(stock.productId)) {
+                    flushedUnits.add(amount);
+                }
+            });
+            for (Long productId : skipped) {
+                // 数据库库存已被改小（或商品已删除），回写会扣成负数：放弃这部分回写，按数据库重新对齐
+                System.err.println(">>> 商品 " + productId + " 内存库存回写被拒绝，按数据库重新对齐");
+                StripedStock stock = hot.get(productId);
+                if (stock != null) {
+                    align(stock);
+                }
+            }
+        }
+
+        synchronized (retiring) {
+            retiring.removeIf(stock -> stock.inFlight.get() == 0 && stock.pending.get() == 0
+                    && stock.releasing.get() == 0);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reservation.reconcile-interval-ms:60000}")
+    public synchronized void reconcile() {
+        flush();
+        if (hot.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> dbStock = productRepository.loadStock(new ArrayList<>(hot.keySet()));
+        for (StripedStock stock : hot.values()) {
+            Integer db = dbStock.get(stock.productId);
+            if (db == null) {
+                continue;
+            }
+            int drift = expectedAvailable(stock, db) - stock.available();
+            if (drift != 0 && drift == stock.lastDrift) {
+                System.out.println(">>> 商品 " + stock.productId + " 内存库存对账偏差 " + drift + "，已修正");
+                stock.adjust(drift);
+                driftCorrections.increment();
+                stock.lastDrift = 0;
+            } else {
+                stock.lastDrift = drift;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void resync(StripedStock stock) {
+        flush();
+        align(stock);
+    }
+
+    private void align(StripedStock stock) {
+        Integer db = productRepository.loadStock(List.of(stock.productId)).get(stock.productId);
+        if (db != null) {
+            stock.adjust(expectedAvailable(stock, db) - stock.available());
+            stock.lastDrift = 0;
+        } else {
+            disable(stock.productId);
+        }
+    }
+
+    private static int expectedAvailable(StripedStock stock, int dbStock) {
+        return Math.max(dbStock - stock.pending.get() - stock.inFlight.get(), 0);
+    }
+
+    /**
+     * 当前内存可售库存，非热点商品返回 null
+     */
+    public Integer available(Long productId) {
+        StripedStock stock = hot.get(productId);
+        return stock != null ? stock.available() : null;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "stockReservation";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Map<Long, Integer> available = new TreeMap<>();
+        int pending = 0;
+        int inFlight = 0;
+        for (StripedStock stock : hot.values()) {
+            available.put(stock.productId, stock.available());
+            pending += stock.pending.get();
+            inFlight += stock.inFlight.get();
+        }
+        metrics.put("hotProducts", available);
+        metrics.put("reserved", reserved.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("rolledBack", rolledBack.sum());
+        metrics.put("inFlight", inFlight);
+        metrics.put("pending", pending);
+        metrics.put("flushedBatches", flushedBatches.sum());
+        metrics.put("flushedUnits", flushedUnits.sum());
+        metrics.put("driftCorrections", driftCorrections.sum());
+        return metrics;
+    }
+
+    /**
+     * 单个商品的分段库存：各段独立 CAS，线程随机选段起步，段内不足时再跨段凑齐
+     */
+    static final class StripedStock {
+        final Long productId;
+        final AtomicIntegerArray stripes;
+        /** 已预占、所在事务尚未结束 */
+        final AtomicInteger inFlight = new AtomicInteger();
+        /** 已提交、尚未回写数据库；归还多于预占时为负 */
+        final AtomicInteger pending = new AtomicInteger();
+        /** 归还库存所在事务尚未结束 */
+        final AtomicInteger releasing = new AtomicInteger();
+        volatile boolean retired;
+        volatile int lastDrift;
+
+        StripedStock(Long productId, int stock, int stripeCount) {
+            this.productId = productId;
+            this.stripes = new AtomicIntegerArray(stripeCount);
+            for (int i = 0; i < stripeCount; i++) {
+                stripes.set(i, stock / stripeCount + (i < stock % stripeCount ? 1 : 0));
+            }
+        }
+
+        boolean tryAcquire(int quantity) {
+            int n = stripes.length();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int i = 0; i < n; i++) {
+                int idx = (start + i) % n;
+                int value;
+                while ((value = stripes.get(idx)) >= quantity) {
+                    if (stripes.compareAndSet(idx, value, value - quantity)) {
+                        return true;
+                    }
+                }
+            }
+
+            // 单段不够时跨段收集，凑不齐则全部退回
+            int remaining = quantity;
+            int[] taken = new int[n];
+            for (int i = 0; i < n && remaining > 0; i++) {
+                int idx = (start + i) % n;
+                int value;
+                while (remaining > 0 && (value = stripes.get(idx)) > 0) {
+                    int take = Math.min(value, remaining);
+                    if (stripes.compareAndSet(idx, value, value - take)) {
+                        taken[idx] += take;
+                        remaining -= take;
+                    }
+                }
+            }
+            if (remaining == 0) {
+                return true;
+            }
+            for (int idx = 0; idx < n; idx++) {
+                if (taken[idx] > 0) {
+                    stripes.addAndGet(idx, taken[idx]);
+                }
+            }
+            return false;
+        }
+
+        void release(int quantity) {
+            stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), quantity);
+        }
+
+        /**
+         * 已提交的归还：先记入待回写（负数即加回数据库），再放回内存
+         */
+        void restock(int quantity) {
+            pending.addAndGet(-quantity);
+            release(quantity);
+        }
+
+        /**
+         * 按偏差调整可售量；减少时尽量从各段扣除，不会扣成负数
+         */
+        void adjust(int delta) {
+            if (delta > 0) {
+                release(delta);
+                return;
+            }
+            int remaining = -delta;
+            for (int idx = 0; idx < stripes.length() && remaining > 0; idx++) {
+                int value;
+                while (remaining > 0 && (value = stripes.get(idx)) > 0) {
+                    int take = Math.min(value, remaining);
+                    if (stripes.compareAndSet(idx, value, value - take)) {
+                        remaining -= take;
+                    }
+                }
+            }
+        }
+
+        int available() {
+            int sum = 0;
+            for (int i = 0; i < stripes.length(); i++) {
+                sum += stripes.get(i);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.config.AuthUser;
+import com.yuxian.backend.event.UserChangedEvent;
+import com.yuxian.backend.repository.UserRepository;
+import com.yuxian.backend.utils.SingleFlightCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 认证主体缓存
+ * JwtFilter 每个请求都要根据用户名取角色，这里按用户名缓存用户 ID 与角色，
+ * 未命中时只查这两列，不加载头像和地址。条目有 TTL 与容量上限，
+ * 同一用户并发未命中只查一次库；用户被修改或删除后立即失效，失效前已开始的加载也不会写回旧角色。
+ */
+@Service
+public class UserPrincipalCache implements MetricsSource {
+
+    private final UserRepository userRepository;
+
+    @Value("${auth.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${auth.principal-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private SingleFlightCache<String, AuthUser> cache;
+
+    public UserPrincipalCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = new SingleFlightCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    /**
+     * 读取认证主体，用户不存在时返回 null（不缓存空结果）
+     */
+    public AuthUser get(String username) {
+        return cache.get(username, key -> {
+            List<Object[]> rows = userRepository.findPrincipalByUsername(key);
+            return rows.isEmpty() ? null : new AuthUser((Long) rows.get(0)[0], key, (String) rows.get(0)[1]);
+        });
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidate(event.getUsername());
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "principalCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return cache.getMetrics();
+    }
+}
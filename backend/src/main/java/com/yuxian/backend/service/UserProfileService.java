@@ -0,0 +1,88 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.dto.UserProfileVO;
+import com.yuxian.backend.entity.Address;
+import com.yuxian.backend.entity.User;
+import com.yuxian.backend.entity.UserProfile;
+import com.yuxian.backend.repository.AddressRepository;
+import com.yuxian.backend.repository.UserProfileRepository;
+import com.yuxian.backend.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户资料读写
+ * 账号核心行、头像、收货地址分别存放，只有展示完整资料的接口才在这里组装三者；
+ * 认证、签到、支付等路径只读写 users 窄表。
+ */
+@Service
+public class UserProfileService {
+
+    private final UserRepository userRepository;
+    private final UserProfileRepository userProfileRepository;
+    private final AddressRepository addressRepository;
+
+    public UserProfileService(UserRepository userRepository, UserProfileRepository userProfileRepository,
+            AddressRepository addressRepository) {
+        this.userRepository = userRepository;
+        this.userProfileRepository = userProfileRepository;
+        this.addressRepository = addressRepository;
+    }
+
+    /**
+     * 按用户 ID 组装完整资料，用户不存在时返回 null
+     */
+    @Transactional(readOnly = true)
+    public UserProfileVO getProfile(Long userId) {
+        User user = userRepository.findById(userId).orElse(null);
+        return user == null ? null : getProfile(user);
+    }
+
+    @Transactional(readOnly = true)
+    public UserProfileVO getProfile(User user) {
+        UserProfile profile = userProfileRepository.findById(user.getId()).orElse(null);
+        return UserProfileVO.of(user, profile, addressRepository.findByUserIdOrderByIdAsc(user.getId()));
+    }
+
+    /**
+     * 整体替换收货地址
+     */
+    @Transactional
+    public UserProfileVO replaceAddresses(Long userId, List<Address> addresses) {
+        addressRepository.deleteByUserId(userId);
+        List<Address> saved = new ArrayList<>();
+        if (addresses != null) {
+            for (Address address : addresses) {
+                address.setId(null);
+                address.setUserId(userId);
+                saved.add(address);
+            }
+            addressRepository.saveAll(saved);
+        }
+        return getProfile(userId);
+    }
+
+    @Transactional
+    public UserProfileVO updateAvatar(Long userId, String avatar) {
+        UserProfile profile = userProfileRepository.findById(userId).orElseGet(() -> {
+            UserProfile created = new UserProfile();
+            created.setUserId(userId);
+            return created;
+        });
+        profile.setAvatar(avatar);
+        userProfileRepository.save(profile);
+        return getProfile(userId);
+    }
+
+    /**
+     * 删除用户的资料与地址，由删除用户时调用
+     */
+    @Transactional
+    public void deleteProfile(Long userId) {
+        addressRepository.deleteByUserId(userId);
+        userProfileRepository.deleteById(userId);
+    }
+}
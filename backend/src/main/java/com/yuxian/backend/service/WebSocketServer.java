@@ -72,15 +72,25 @@ public class WebSocketServer {
         }
     }
 
-    public static void sendToUser(String username, String message) {
+    /**
+     * @return 是否已写出；用户不在线或发送异常时返回 false
+     */
+    public static boolean sendToUser(String username, String message) {
         Session userSession = userSessionMap.get(username);
         if (userSession != null && userSession.isOpen()) {
             try {
                 userSession.getBasicRemote().sendText(message);
+                return true;
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+        return false;
+    }
+
+    public static boolean isOnline(String username) {
+        Session userSession = userSessionMap.get(username);
+        return userSession != null && userSession.isOpen();
     }
 
     private String getUsernameFromToken(Session session) {
@@ -1,12 +1,21 @@
 package com.yuxian.backend.service.impl;
 
+import com.yuxian.backend.component.MetricsSource;
 import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
 import com.yuxian.backend.entity.User;
+import com.yuxian.backend.event.UserChangedEvent;
 import com.yuxian.backend.repository.OrderRepository;
 import com.yuxian.backend.repository.ProductRepository;
 import com.yuxian.backend.repository.UserRepository;
 import com.yuxian.backend.service.AdminService;
+import com.yuxian.backend.service.OrderArchiveService;
+import com.yuxian.backend.service.OrderService;
+import com.yuxian.backend.service.StockReservationEngine;
+import com.yuxian.backend.service.UserProfileService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -19,13 +28,31 @@ public class AdminServiceImpl implements AdminService {
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final List<MetricsSource> metricsSources;
+    private final StockReservationEngine stockReservationEngine;
+    private final OrderArchiveService orderArchiveService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserProfileService userProfileService;
+    private final OrderService orderService;
 
     public AdminServiceImpl(UserRepository userRepository,
             OrderRepository orderRepository,
-            ProductRepository productRepository) {
+            ProductRepository productRepository,
+            List<MetricsSource> metricsSources,
+            StockReservationEngine stockReservationEngine,
+            OrderArchiveService orderArchiveService,
+            ApplicationEventPublisher eventPublisher,
+            UserProfileService userProfileService,
+            OrderService orderService) {
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.metricsSources = metricsSources;
+        this.stockReservationEngine = stockReservationEngine;
+        this.orderArchiveService = orderArchiveService;
+        this.eventPublisher = eventPublisher;
+        this.userProfileService = userProfileService;
+        this.orderService = orderService;
     }
 
     @Override
@@ -40,17 +67,21 @@ public class AdminServiceImpl implements AdminService {
         long totalUsers = userRepository.count();
         long totalProducts = productRepository.count();
 
+        // 已归档的订单移出了热表，总数与总销售额要把归档表一并算上
         BigDecimal totalSalesDecimal = orderRepository.sumTotalSales();
+        BigDecimal archivedSales = orderArchiveService.sumSales();
+        if (totalSalesDecimal != null && archivedSales != null) {
+            totalSalesDecimal = totalSalesDecimal.add(archivedSales);
+        }
         double totalSales = (totalSalesDecimal != null) ? totalSalesDecimal.doubleValue() : 0.0;
 
-        long totalOrders = orderRepository.count();
+        long totalOrders = orderRepository.count() + orderArchiveService.countOrders();
 
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd");
         LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
 
-        List<String> invalidStatuses = List.of("UNPAID", "CANCELLED", "REFUNDED", "PENDING_REFUND");
         List<OrderRecord> recentOrders = orderRepository.findByCreateTimeAfter(sevenDaysAgo).stream()
-                .filter(o -> !invalidStatuses.contains(o.getStatus()))
+                .filter(o -> OrderStatus.REVENUE.contains(o.getStatus()))
                 .collect(Collectors.toList());
 
         Map<String, Double> salesTrend = recentOrders.stream()
@@ -72,6 +103,7 @@ public class AdminServiceImpl implements AdminService {
         stats.put("totalProducts", totalProducts);
         stats.put("totalOrders", totalOrders);
         stats.put("totalSales", totalSales);
+        stats.put("pendingOrders", orderRepository.countByStatus(OrderStatus.PAID));
         stats.put("chartData", Map.of("dates", dateList, "values", valueList));
 
         return stats;
@@ -90,20 +122,29 @@ public class AdminServiceImpl implements AdminService {
         boolean hasStatus = status != null && !status.isEmpty() && !"ALL".equals(status);
 
         if (hasKeyword && hasStatus) {
-            orderPage = orderRepository.findByUsernameContainingAndStatusOrderByCreateTimeDesc(keyword, status,
-                    pageable);
+            orderPage = orderRepository.findByUsernameContainingAndStatusOrderByCreateTimeDesc(keyword,
+                    OrderStatus.parse(status), pageable);
         } else if (hasKeyword) {
             orderPage = orderRepository.findByUsernameContainingOrderByCreateTimeDesc(keyword, pageable);
         } else if (hasStatus) {
-            orderPage = orderRepository.findByStatusOrderByCreateTimeDesc(status, pageable);
+            orderPage = orderRepository.findByStatusOrderByCreateTimeDesc(OrderStatus.parse(status), pageable);
         } else {
             orderPage = orderRepository.findAll(pageable);
         }
 
+        // 热表之后接着是归档订单：本页未取满时从归档表补足，总数为两者之和
+        List<OrderRecord> content = new ArrayList<>(orderPage.getContent());
+        long hotTotal = orderPage.getTotalElements();
+        long archiveOffset = Math.max(0, (long) (page - 1) * size + content.size() - hotTotal);
+        OrderArchiveService.ArchiveSlice archived = orderArchiveService.search(keyword,
+                hasStatus ? OrderStatus.parse(status) : null, archiveOffset, size - content.size());
+        content.addAll(archived.getContent());
+        long total = hotTotal + archived.getTotal();
+
         Map<String, Object> response = new HashMap<>();
-        response.put("content", orderPage.getContent());
-        response.put("totalElements", orderPage.getTotalElements());
-        response.put("totalPages", orderPage.getTotalPages());
+        response.put("content", content);
+        response.put("totalElements", total);
+        response.put("totalPages", (total + size - 1) / size);
         response.put("currentPage", page);
 
         return response;
@@ -111,15 +152,18 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     public void updateOrderStatus(Long id, String status) {
-        orderRepository.findById(id).ifPresent(order -> {
-            order.setStatus(status);
-            orderRepository.save(order);
-        });
+        orderService.overrideStatus(id, OrderStatus.parse(status));
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long id) {
+        String username = userRepository.findUsernameById(id);
+        userProfileService.deleteProfile(id);
         userRepository.deleteById(id);
+        if (username != null) {
+            eventPublisher.publishEvent(new UserChangedEvent(username));
+        }
     }
 
     @Override
@@ -127,6 +171,25 @@ public class AdminServiceImpl implements AdminService {
         userRepository.findById(id).ifPresent(user -> {
             user.setPoints(points);
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getUsername()));
         });
     }
+
+    @Override
+    public Map<String, Object> getRuntimeMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        for (MetricsSource source : metricsSources) {
+            metrics.put(source.getMetricsName(), source.getMetrics());
+        }
+        return metrics;
+    }
+
+    @Override
+    public void setHotProduct(Long productId, boolean hot) {
+        if (hot) {
+            stockReservationEngine.enable(productId);
+        } else {
+            stockReservationEngine.disable(productId);
+        }
+    }
 }
@@ -1,42 +1,81 @@
 package com.yuxian.backend.service.impl;
 
+import com.yuxian.backend.config.AuthUser;
 import com.yuxian.backend.entity.*;
+import com.yuxian.backend.event.OrderLifecycleEvent;
+import com.yuxian.backend.event.ProductChangedEvent;
 import com.yuxian.backend.repository.*;
 import com.yuxian.backend.service.OrderService;
-import com.yuxian.backend.service.WebSocketServer;
+import com.yuxian.backend.service.StockReservationEngine;
+import com.yuxian.backend.service.NotificationOutbox;
+import com.yuxian.backend.service.OrderArchiveService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
+import com.yuxian.backend.dto.CursorPage;
+import com.yuxian.backend.dto.OrderItemThumbVO;
+import com.yuxian.backend.dto.OrderSummaryVO;
 import com.yuxian.backend.dto.RefundDetailVO;
+import com.yuxian.backend.utils.CursorCodec;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
+    private static final Map<String, String> REFUND_SORT_FIELDS = Map.of(
+            "applyTime", "createTime",
+            "amount", "totalPrice",
+            "orderId", "id");
+
+    /** 游标中代表“创建时间为空”的时间值，这类旧订单排在最后 */
+    private static final long UNDATED_CURSOR = Long.MIN_VALUE;
+
     private final ProductRepository productRepository;
     private final OrderRepository orderRepository;
     private final UserCouponRepository userCouponRepository;
     private final RefundFeedbackRepository refundFeedbackRepository;
     private final UserRepository userRepository;
     private final WalletLogRepository walletLogRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockReservationEngine stockReservationEngine;
+    private final NotificationOutbox notificationOutbox;
+    private final OrderArchiveService orderArchiveService;
 
     public OrderServiceImpl(ProductRepository productRepository,
             OrderRepository orderRepository,
             UserCouponRepository userCouponRepository,
             RefundFeedbackRepository refundFeedbackRepository,
             UserRepository userRepository,
-            WalletLogRepository walletLogRepository) {
+            WalletLogRepository walletLogRepository,
+            ApplicationEventPublisher eventPublisher,
+            StockReservationEngine stockReservationEngine,
+            NotificationOutbox notificationOutbox,
+            OrderArchiveService orderArchiveService) {
         this.productRepository = productRepository;
         this.orderRepository = orderRepository;
         this.userCouponRepository = userCouponRepository;
         this.refundFeedbackRepository = refundFeedbackRepository;
         this.userRepository = userRepository;
         this.walletLogRepository = walletLogRepository;
+        this.eventPublisher = eventPublisher;
+        this.stockReservationEngine = stockReservationEngine;
+        this.notificationOutbox = notificationOutbox;
+        this.orderArchiveService = orderArchiveService;
     }
 
     @Override
@@ -55,7 +94,7 @@ public class OrderServiceImpl implements OrderService {
         order.setUsername(username);
         order.setCreateTime(LocalDateTime.now());
 
-        order.setStatus("UNPAID");
+        order.setStatus(OrderStatus.UNPAID);
 
         order.setReceiverName(addressSnapshot.getContact());
         order.setReceiverPhone(addressSnapshot.getPhone());
@@ -65,17 +104,47 @@ public class OrderServiceImpl implements OrderService {
         StringBuilder namesBuilder = new StringBuilder();
         BigDecimal total = BigDecimal.ZERO;
 
+        // 同一商品多行合并，按ID升序扣减库存，所有下单请求加锁顺序一致
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
         for (Map<String, Object> payload : itemPayloads) {
             Long pid = Long.valueOf(payload.get("id").toString());
             int quantity = Integer.parseInt(payload.get("quantity").toString());
+            quantities.merge(pid, quantity, Integer::sum);
+        }
 
-            Product product = productRepository.findById(pid)
-                    .orElseThrow(() -> new RuntimeException("商品不存在: " + pid));
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+        for (Long pid : quantities.keySet()) {
+            if (!products.containsKey(pid)) {
+                throw new RuntimeException("商品不存在: " + pid);
+            }
+        }
 
-            int rows = productRepository.decreaseStock(pid, quantity);
-            if (rows == 0) {
-                throw new RuntimeException("商品 [" + product.getName() + "] 库存不足！");
+        // 热点商品在内存中预占，其余商品走数据库批量扣减
+        SortedMap<Long, Integer> dbQuantities = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            StockReservationEngine.Result result = stockReservationEngine.reserve(entry.getKey(), entry.getValue());
+            if (result == StockReservationEngine.Result.INSUFFICIENT) {
+                throw new RuntimeException("商品 [" + products.get(entry.getKey()).getName() + "] 库存不足！");
+            }
+            if (result == StockReservationEngine.Result.NOT_MANAGED) {
+                dbQuantities.put(entry.getKey(), entry.getValue());
             }
+        }
+
+        Long shortage = productRepository.decreaseStockBatch(dbQuantities);
+        if (shortage != null) {
+            throw new RuntimeException("商品 [" + products.get(shortage).getName() + "] 库存不足！");
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            eventPublisher.publishEvent(ProductChangedEvent.stock(entry.getKey(), -entry.getValue()));
+        }
+
+        for (Map<String, Object> payload : itemPayloads) {
+            Product product = products.get(Long.valueOf(payload.get("id").toString()));
+            int quantity = Integer.parseInt(payload.get("quantity").toString());
 
             OrderItem item = new OrderItem();
             item.setProductId(product.getId());
@@ -133,73 +202,67 @@ public class OrderServiceImpl implements OrderService {
         order.setItems(orderItems);
         order.setTotalPrice(total);
         orderRepository.save(order);
+        eventPublisher.publishEvent(OrderLifecycleEvent.created(order.getId(), order.getCreateTime()));
 
         return order.getId();
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    public void payOrder(Long orderId, String username, String paymentMethod) {
+    public void payOrder(Long orderId, AuthUser payer, String paymentMethod) {
         OrderRecord order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("订单不存在"));
 
-        if (!order.getUsername().equals(username)) {
+        if (!order.getUsername().equals(payer.getUsername())) {
             throw new RuntimeException("无权操作此订单");
         }
 
-        if (!"UNPAID".equals(order.getStatus())) {
+        // 先用条件更新抢占状态：并发支付同一订单时只有一个能把 UNPAID 改为 PAID，其余直接失败，不会重复扣款
+        if (order.getStatus() != OrderStatus.UNPAID
+                || orderRepository.updateStatus(List.of(orderId), OrderStatus.UNPAID, OrderStatus.PAID) == 0) {
             throw new RuntimeException("订单状态异常，无法支付");
         }
 
         if ("BALANCE".equals(paymentMethod)) {
-            User user = userRepository.findByUsername(username);
-            if (user == null)
-                throw new RuntimeException("用户异常");
-
-            BigDecimal currentBalance = user.getBalance() != null ? user.getBalance() : BigDecimal.ZERO;
-            if (currentBalance.compareTo(order.getTotalPrice()) < 0) {
+            // 按用户 ID 条件扣减，余额不足时不更新，无需先加载用户实体
+            if (userRepository.deductBalance(payer.getUserId(), order.getTotalPrice()) == 0) {
                 throw new RuntimeException("余额不足，请充值或选择其他支付方式");
             }
 
-            user.setBalance(currentBalance.subtract(order.getTotalPrice()));
-            userRepository.save(user);
-
             WalletLog log = new WalletLog();
-            log.setUserId(user.getId());
+            log.setUserId(payer.getUserId());
             log.setAmount(order.getTotalPrice().negate());
             log.setType(2);
             log.setDescription("购买商品：" + order.getProductNames());
             walletLogRepository.save(log);
 
-            System.out.println("余额支付成功: User=" + username + " Price=" + order.getTotalPrice());
+            System.out.println("余额支付成功: User=" + payer.getUsername() + " Price=" + order.getTotalPrice());
         }
 
-        order.setStatus("PAID");
-        orderRepository.save(order);
+        eventPublisher.publishEvent(OrderLifecycleEvent.paid(orderId));
 
-        try {
-            WebSocketServer.sendInfo("NEW_ORDER");
-        } catch (Exception e) {
-            System.err.println("WebSocket 推送失败: " + e.getMessage());
-        }
+        notificationOutbox.toAdmins("NEW_ORDER");
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void applyRefund(Long orderId, String reason, String type, String username) {
 
-        OrderRecord order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("订单不存在"));
+        OrderRecord order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            throw new RuntimeException(orderArchiveService.isArchived(orderId)
+                    ? "订单已超过售后期限" : "订单不存在");
+        }
 
         if (!order.getUsername().equals(username)) {
             throw new RuntimeException("无权操作此订单");
         }
 
-        if (!"已送达".equals(order.getStatus()) && !"DELIVERED".equals(order.getStatus())) {
+        if (order.getStatus() != OrderStatus.DELIVERED) {
             throw new RuntimeException("当前订单状态不可申请售后");
         }
 
-        order.setStatus("售后处理中");
+        order.transitionTo(OrderStatus.REFUND_PENDING);
         orderRepository.save(order);
 
         RefundFeedback feedback = new RefundFeedback();
@@ -209,16 +272,12 @@ public class OrderServiceImpl implements OrderService {
         feedback.setOperator(username);
         refundFeedbackRepository.save(feedback);
 
-        try {
-            WebSocketServer.sendInfo("NEW_REFUND");
-        } catch (Exception e) {
-            System.err.println("WebSocket 推送失败: " + e.getMessage());
-        }
+        notificationOutbox.toAdmins("NEW_REFUND");
     }
 
     @Override
     public List<OrderRecord> getPendingRefundOrders() {
-        return orderRepository.findByStatusOrderByCreateTimeDesc("售后处理中");
+        return orderRepository.findByStatusOrderByCreateTimeDesc(OrderStatus.REFUND_PENDING);
     }
 
     @Override
@@ -228,7 +287,10 @@ public class OrderServiceImpl implements OrderService {
         OrderRecord order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("订单不存在"));
 
-        if (!"售后处理中".equals(order.getStatus())) {
+        // 先用条件更新抢占状态：与批量审核、重复提交互斥，同一笔售后只会入账一次
+        OrderStatus target = pass ? OrderStatus.REFUNDED : OrderStatus.DELIVERED;
+        if (order.getStatus() != OrderStatus.REFUND_PENDING
+                || orderRepository.updateStatus(List.of(orderId), OrderStatus.REFUND_PENDING, target) == 0) {
             throw new RuntimeException("该订单当前不在售后流程中");
         }
 
@@ -238,93 +300,195 @@ public class OrderServiceImpl implements OrderService {
         adminFeedback.setOperator(adminUsername);
 
         if (pass) {
-            order.setStatus("退款成功");
             adminFeedback.setContent("审核通过");
-
-            User user = userRepository.findByUsername(order.getUsername());
-            if (user != null) {
-                BigDecimal currentBalance = user.getBalance() != null ? user.getBalance() : BigDecimal.ZERO;
-                user.setBalance(currentBalance.add(order.getTotalPrice()));
-                userRepository.save(user);
-
-                WalletLog log = new WalletLog();
-                log.setUserId(user.getId());
-                log.setAmount(order.getTotalPrice());
-                log.setType(1);
-                log.setDescription("订单退款: " + orderId);
-                walletLogRepository.save(log);
-
-                WebSocketServer.sendToUser(user.getUsername(), "【系统消息】您的订单退款已到账，金额：" + order.getTotalPrice());
-            }
-
-            if (order.getItems() != null) {
-                for (OrderItem item : order.getItems()) {
-                    productRepository.increaseStock(item.getProductId(), item.getQuantity());
-                }
-            }
+            refundToBalance(order);
+            restock(order.getItems());
         } else {
-            order.setStatus("已送达");
             adminFeedback.setContent("审核驳回，原因：" + (reason != null ? reason : "无"));
         }
 
         refundFeedbackRepository.save(adminFeedback);
-        orderRepository.save(order);
     }
 
     @Override
-    public List<RefundDetailVO> getPendingRefundsWithDetails() {
+    @Transactional(rollbackFor = Exception.class)
+    public void overrideStatus(Long orderId, OrderStatus target) {
+        OrderRecord order = orderRepository.findById(orderId).orElseThrow(() -> new RuntimeException("订单不存在"));
+        OrderStatus current = order.getStatus();
+        if (current == target) {
+            return;
+        }
+        if (current == null || !current.canAdminOverride(target)) {
+            throw new RuntimeException("订单当前状态为「" + (current != null ? current.getLabel() : "未知")
+                    + "」，不能变更为「" + target.getLabel() + "」");
+        }
+        if (orderRepository.overrideStatus(List.of(orderId), current, target) == 0) {
+            throw new RuntimeException("订单状态已变化，请刷新后重试");
+        }
 
-        List<OrderRecord> orders = orderRepository.findByStatusOrderByCreateTimeDesc("售后处理中");
+        if (target == OrderStatus.CANCELLED || target == OrderStatus.REFUNDED) {
+            // 已付款的订单退回余额；未付款的取消只需归还库存并移出超时队列
+            if (current == OrderStatus.UNPAID) {
+                eventPublisher.publishEvent(OrderLifecycleEvent.closed(orderId));
+            } else {
+                refundToBalance(order);
+            }
+            restock(order.getItems());
+        }
+        notificationOutbox.toUser(order.getUsername(),
+                "【系统消息】您的订单 " + orderId + " 状态已更新为：" + target.getLabel());
+    }
 
-        List<RefundDetailVO> result = new ArrayList<>();
+    /**
+     * 订单金额退回用户余额并记账；按用户 ID 原子累加，不读改写用户实体
+     */
+    private void refundToBalance(OrderRecord order) {
+        List<Object[]> ids = userRepository.findIdsByUsernames(List.of(order.getUsername()));
+        if (ids.isEmpty() || order.getTotalPrice() == null) {
+            return;
+        }
+        Long userId = (Long) ids.get(0)[1];
+        userRepository.addBalance(userId, order.getTotalPrice());
 
-        for (OrderRecord order : orders) {
+        WalletLog log = new WalletLog();
+        log.setUserId(userId);
+        log.setAmount(order.getTotalPrice());
+        log.setType(1);
+        log.setDescription("订单退款: " + order.getId());
+        walletLogRepository.save(log);
 
-            List<RefundFeedback> feedbacks = refundFeedbackRepository.findByOrderId(order.getId());
+        notificationOutbox.toUser(order.getUsername(), "【系统消息】您的订单退款已到账，金额：" + order.getTotalPrice());
+    }
 
-            String reason = "无详细原因";
-            if (!feedbacks.isEmpty()) {
-                reason = feedbacks.get(feedbacks.size() - 1).getContent();
-            }
+    @Override
+    public List<RefundDetailVO> getPendingRefundsWithDetails() {
+        return orderRepository.findRefundDetails(OrderStatus.REFUND_PENDING, Pageable.unpaged(refundSort("applyTime", "desc")))
+                .getContent();
+    }
+
+    /**
+     * 售后工单分页，page 从 1 开始；排序字段只接受 applyTime / amount / orderId
+     */
+    @Override
+    public Map<String, Object> getPendingRefundPage(int page, int size, String sortBy, String direction) {
+        Page<RefundDetailVO> refundPage = orderRepository.findRefundDetails(OrderStatus.REFUND_PENDING,
+                PageRequest.of(page - 1, size, refundSort(sortBy, direction)));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", refundPage.getContent());
+        response.put("totalElements", refundPage.getTotalElements());
+        response.put("totalPages", refundPage.getTotalPages());
+        response.put("currentPage", page);
+        return response;
+    }
 
-            result.add(new RefundDetailVO(
-                    order.getId(),
-                    order.getUsername(),
-                    order.getTotalPrice(),
-                    reason,
-                    order.getStatus(),
-                    order.getProductNames(),
-                    order.getCreateTime()));
+    private Sort refundSort(String sortBy, String direction) {
+        String property = REFUND_SORT_FIELDS.get(sortBy == null ? "applyTime" : sortBy);
+        if (property == null) {
+            throw new RuntimeException("不支持的排序字段: " + sortBy);
         }
-        return result;
+        Sort.Direction dir = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        // 追加 id 保证同值时顺序稳定，翻页不重不漏
+        Sort sort = Sort.by(dir, property);
+        return "id".equals(property) ? sort : sort.and(Sort.by(dir, "id"));
     }
 
     @Override
     public List<OrderRecord> getMyOrders(String username) {
-        return orderRepository.findByUsernameOrderByCreateTimeDesc(username);
+        return orderArchiveService.mergeUserOrders(username,
+                orderRepository.findByUsernameOrderByCreateTimeDesc(username));
+    }
+
+    /**
+     * 按 (createTime, id) 倒序的订单摘要游标分页；商品缩略信息一次批量查出
+     */
+    @Override
+    public CursorPage<OrderSummaryVO> getMyOrderSummaries(String username, String cursor, int size) {
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<OrderSummaryVO> rows;
+        if (cursor == null) {
+            rows = orderRepository.findSummaries(username, limit);
+        } else {
+            long[] key = CursorCodec.decode(cursor, 2);
+            if (key[0] == UNDATED_CURSOR) {
+                rows = orderRepository.findUndatedSummariesAfter(username, key[1], limit);
+            } else {
+                LocalDateTime createTime = LocalDateTime.ofEpochSecond(Math.floorDiv(key[0], 1_000_000L),
+                        (int) Math.floorMod(key[0], 1_000_000L) * 1000, ZoneOffset.UTC);
+                rows = orderRepository.findSummariesAfter(username, createTime, key[1], limit);
+            }
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<OrderSummaryVO> page = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        if (!page.isEmpty()) {
+            Map<Long, OrderSummaryVO> byId = new HashMap<>();
+            for (OrderSummaryVO summary : page) {
+                byId.put(summary.getId(), summary);
+            }
+            for (OrderItemThumbVO thumb : orderRepository.findItemThumbs(byId.keySet())) {
+                byId.get(thumb.getOrderId()).getItems().add(thumb);
+            }
+        }
+
+        String next = null;
+        if (hasMore) {
+            OrderSummaryVO last = page.get(page.size() - 1);
+            LocalDateTime t = last.getCreateTime();
+            long micros = t == null ? UNDATED_CURSOR
+                    : t.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + t.getNano() / 1000;
+            next = CursorCodec.encode(micros, last.getId());
+        }
+        return new CursorPage<>(page, next);
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void deleteOrder(Long orderId, String username) {
-        OrderRecord order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("订单不存在"));
+        OrderRecord order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            // 归档订单只可能是终态，其中已取消的仍允许用户删除
+            if (orderArchiveService.deleteUserOrder(orderId, username, EnumSet.of(OrderStatus.CANCELLED))) {
+                return;
+            }
+            throw new RuntimeException("订单不存在");
+        }
 
         if (!order.getUsername().equals(username)) {
             throw new RuntimeException("无权操作此订单");
         }
 
-        String status = order.getStatus();
-        if (!"UNPAID".equals(status) && !"CANCELLED".equals(status)) {
+        OrderStatus status = order.getStatus();
+        if (status != OrderStatus.UNPAID && status != OrderStatus.CANCELLED) {
             throw new RuntimeException("当前订单状态不允许删除或取消");
         }
 
-        if ("UNPAID".equals(status) && order.getItems() != null) {
-            for (OrderItem item : order.getItems()) {
-                productRepository.increaseStock(item.getProductId(), item.getQuantity());
+        if (status == OrderStatus.UNPAID) {
+            // 与超时取消抢同一个状态，只有抢到的一方归还库存
+            if (orderRepository.updateStatus(List.of(orderId), OrderStatus.UNPAID, OrderStatus.CANCELLED) == 0) {
+                throw new RuntimeException("订单状态已变化，请刷新后重试");
             }
+            restock(order.getItems());
         }
 
         orderRepository.delete(order);
+        eventPublisher.publishEvent(OrderLifecycleEvent.closed(orderId));
+    }
+
+    /**
+     * 归还订单商品库存：热点商品交给内存预占引擎，其余直接写库
+     */
+    private void restock(List<OrderItem> items) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        SortedMap<Long, Integer> restock = new TreeMap<>();
+        for (OrderItem item : items) {
+            restock.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        productRepository.adjustStockBatch(stockReservationEngine.releaseAll(restock));
+        for (Map.Entry<Long, Integer> entry : restock.entrySet()) {
+            eventPublisher.publishEvent(ProductChangedEvent.stock(entry.getKey(), entry.getValue()));
+        }
     }
 }
\ No newline at end of file
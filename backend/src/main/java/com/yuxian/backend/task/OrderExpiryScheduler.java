@@ -0,0 +1,172 @@
+package com.yuxian.backend.task;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.event.OrderLifecycleEvent;
+import com.yuxian.backend.repository.OrderRepository;
+import com.yuxian.backend.utils.TimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 待支付订单到期调度
+ * 启动时从数据库加载全部待支付订单放入分层时间轮，之后订单创建时登记、支付或删除时移除；
+ * 后台线程按 tick 推进时间轮，同一 tick 到期的订单整批交给 {@link OrderTimeoutTask} 分块取消，不再整表轮询。
+ * 到期时间按应用内的创建时间计算，可能略早于数据库中的 create_time（如 DATETIME 精度进位），
+ * 到期却未被取消、且仍待支付的订单按数据库创建时间重新登记。
+ */
+@Component
+public class OrderExpiryScheduler implements MetricsSource {
+
+    private final OrderRepository orderRepository;
+    private final OrderTimeoutTask orderTimeoutTask;
+
+    @Value("${order.unpaid-timeout-minutes:5}")
+    private long timeoutMinutes;
+
+    @Value("${order.expiry.tick-ms:100}")
+    private long tickMillis;
+
+    private volatile TimingWheel<Long> wheel;
+    private ScheduledExecutorService ticker;
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rescheduled = new LongAdder();
+
+    public OrderExpiryScheduler(OrderRepository orderRepository, OrderTimeoutTask orderTimeoutTask) {
+        this.orderRepository = orderRepository;
+        this.orderTimeoutTask = orderTimeoutTask;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        TimingWheel<Long> w = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        for (Object[] row : orderRepository.findUnpaidDeadlines()) {
+            LocalDateTime createTime = (LocalDateTime) row[1];
+            w.add((Long) row[0], deadline(createTime != null ? createTime : LocalDateTime.now()));
+        }
+        wheel = w;
+        System.out.println(">>> 订单超时时间轮已启动，待支付订单数: " + w.size());
+
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderLifecycle(OrderLifecycleEvent event) {
+        TimingWheel<Long> w = wheel;
+        if (w == null) {
+            return;
+        }
+        if (event.getType() == OrderLifecycleEvent.Type.CREATED) {
+            w.add(event.getOrderId(), deadline(event.getCreateTime()));
+            scheduled.increment();
+        } else {
+            w.remove(event.getOrderId());
+        }
+    }
+
+    private void tick() {
+        try {
+            expire(wheel.advance(System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            System.err.println("订单超时调度异常: " + e.getMessage());
+        }
+    }
+
+    void expire(List<Long> due) {
+        if (due.isEmpty()) {
+            return;
+        }
+        fired.add(due.size());
+        Set<Long> done;
+        try {
+            done = orderTimeoutTask.cancelExpiredOrders(due);
+            batches.increment();
+        } catch (RuntimeException e) {
+            // 留给兜底扫描处理
+            System.err.println("批量取消超时订单失败: " + e.getMessage());
+            return;
+        }
+        cancelled.add(done.size());
+
+        List<Long> missed = new ArrayList<>();
+        for (Long orderId : due) {
+            if (!done.contains(orderId)) {
+                missed.add(orderId);
+            }
+        }
+        if (!missed.isEmpty()) {
+            reschedule(missed);
+        }
+    }
+
+    /**
+     * 已支付、已删除的订单查不到，自然丢弃；仍待支付的按数据库创建时间重新登记，至少推迟一个 tick
+     */
+    private void reschedule(List<Long> orderIds) {
+        long earliest = System.currentTimeMillis() + tickMillis;
+        for (Object[] row : orderRepository.findUnpaidDeadlines(orderIds)) {
+            LocalDateTime createTime = (LocalDateTime) row[1];
+            long deadline = createTime != null ? deadline(createTime) : earliest;
+            wheel.add((Long) row[0], Math.max(deadline, earliest));
+            rescheduled.increment();
+        }
+    }
+
+    /**
+     * 创建时间带亚毫秒部分时向上取整到毫秒，保证不早于 create_time + 超时时长
+     */
+    private long deadline(LocalDateTime createTime) {
+        Instant instant = createTime.plusMinutes(timeoutMinutes).atZone(ZoneId.systemDefault()).toInstant();
+        return instant.toEpochMilli() + (instant.getNano() % 1_000_000 == 0 ? 0 : 1);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderExpiry";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        TimingWheel<Long> w = wheel;
+        metrics.put("pending", w != null ? w.size() : 0);
+        metrics.put("scheduled", scheduled.sum());
+        metrics.put("fired", fired.sum());
+        metrics.put("cancelled", cancelled.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("rescheduled", rescheduled.sum());
+        return metrics;
+    }
+}
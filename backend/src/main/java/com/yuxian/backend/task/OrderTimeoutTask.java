@@ -1,63 +1,143 @@
 package com.yuxian.backend.task;
 
-import com.yuxian.backend.entity.OrderItem;
-import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.event.OrderLifecycleEvent;
+import com.yuxian.backend.event.ProductChangedEvent;
 import com.yuxian.backend.repository.OrderRepository;
 import com.yuxian.backend.repository.ProductRepository;
-import com.yuxian.backend.service.WebSocketServer;
+import com.yuxian.backend.service.NotificationOutbox;
+import com.yuxian.backend.service.StockReservationEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
 
+/**
+ * 超时未支付订单取消
+ * 正常情况下由 {@link OrderExpiryScheduler} 在到期时刻按批调用；这里的定时扫描只作兜底，
+ * 处理时间轮之外遗漏的订单（例如其他实例创建的订单、停机期间积压的订单）。
+ * 取消按块进行，每块一个短事务：锁定仍待支付的订单行、一条 UPDATE 改状态、
+ * 按商品汇总后每个商品一条 UPDATE 回补库存；用户通知按用户合并后写入发件箱，随事务一起提交。
+ */
 @Component
 public class OrderTimeoutTask {
 
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationOutbox notificationOutbox;
+    private final StockReservationEngine stockReservationEngine;
 
-    public OrderTimeoutTask(OrderRepository orderRepository, ProductRepository productRepository) {
+    @Value("${order.unpaid-timeout-minutes:5}")
+    private long timeoutMinutes;
+
+    @Value("${order.timeout.chunk-size:500}")
+    private int chunkSize;
+
+    public OrderTimeoutTask(OrderRepository orderRepository, ProductRepository productRepository,
+            ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+            NotificationOutbox notificationOutbox, StockReservationEngine stockReservationEngine) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationOutbox = notificationOutbox;
+        this.stockReservationEngine = stockReservationEngine;
     }
 
-    @Scheduled(fixedRate = 60000)
-    @Transactional
+    @Scheduled(fixedRateString = "${order.timeout.fallback-scan-ms:600000}")
     public void cancelTimeoutOrders() {
-
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(5);
-        List<OrderRecord> timeoutOrders = orderRepository.findByStatusAndCreateTimeBefore("UNPAID", cutoffTime);
-
-        if (timeoutOrders.isEmpty()) {
-            return;
+        LocalDateTime cutoffTime = cutoff();
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            List<Long> ids = orderRepository.findExpiredUnpaidIds(cutoffTime, afterId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            total += cancelChunk(ids, cutoffTime).size();
+            afterId = ids.get(ids.size() - 1);
         }
+        if (total > 0) {
+            System.out.println(">>> 兜底扫描取消 " + total + " 笔超时待支付订单");
+        }
+    }
 
-        System.out.println(">>> 扫描到 " + timeoutOrders.size() + " 笔超时待支付订单...");
-
-        for (OrderRecord order : timeoutOrders) {
-
-            if (!"UNPAID".equals(order.getStatus()))
-                continue;
+    /**
+     * 取消一批已到期的订单；已支付、已删除或尚未到期的订单会被跳过
+     *
+     * @return 实际取消的订单ID
+     */
+    public Set<Long> cancelExpiredOrders(Collection<Long> orderIds) {
+        List<Long> sorted = new ArrayList<>(orderIds);
+        Collections.sort(sorted);
+        LocalDateTime cutoffTime = cutoff();
+        Set<Long> cancelled = new HashSet<>();
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            cancelled.addAll(cancelChunk(sorted.subList(from, Math.min(from + chunkSize, sorted.size())), cutoffTime));
+        }
+        return cancelled;
+    }
 
-            System.out.println("正在自动取消超时订单: ID=" + order.getId() + ", 用户=" + order.getUsername());
+    private Set<Long> cancelChunk(List<Long> candidateIds, LocalDateTime cutoffTime) {
+        Map<Long, String> cancelled = transactionTemplate.execute(status -> {
+            Map<Long, String> locked = orderRepository.lockExpiredUnpaid(candidateIds, cutoffTime);
+            if (locked.isEmpty()) {
+                return locked;
+            }
+            orderRepository.markCancelled(locked.keySet());
 
-            if (order.getItems() != null) {
-                for (OrderItem item : order.getItems()) {
-                    System.out.println("  回滚库存: 商品ID=" + item.getProductId() + ", 数量=" + item.getQuantity());
-                    productRepository.increaseStock(item.getProductId(), item.getQuantity());
-                }
+            SortedMap<Long, Integer> restock = orderRepository.sumItemQuantities(locked.keySet());
+            // 热点商品的库存归还给内存引擎，随回写任务写库；其余商品直接更新
+            productRepository.adjustStockBatch(stockReservationEngine.releaseAll(restock));
+            for (Map.Entry<Long, Integer> entry : restock.entrySet()) {
+                eventPublisher.publishEvent(ProductChangedEvent.stock(entry.getKey(), entry.getValue()));
             }
+            for (Long orderId : locked.keySet()) {
+                eventPublisher.publishEvent(OrderLifecycleEvent.closed(orderId));
+            }
+            notifyUsers(locked);
+            return locked;
+        });
 
-            order.setStatus("CANCELLED");
-            orderRepository.save(order);
+        if (cancelled == null || cancelled.isEmpty()) {
+            return Collections.emptySet();
+        }
+        System.out.println(">>> 已自动取消超时订单 " + cancelled.size() + " 笔: " + cancelled.keySet());
+        return cancelled.keySet();
+    }
 
-            try {
-                WebSocketServer.sendToUser(order.getUsername(), "【系统消息】您的订单 #" + order.getId() + " 因超时未支付已自动取消。");
-            } catch (Exception e) {
-                System.err.println("超时通知推送失败: " + e.getMessage());
+    private void notifyUsers(Map<Long, String> cancelled) {
+        Map<String, List<Long>> byUser = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> entry : cancelled.entrySet()) {
+            byUser.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+        }
+        for (Map.Entry<String, List<Long>> entry : byUser.entrySet()) {
+            StringBuilder ids = new StringBuilder();
+            for (Long id : entry.getValue()) {
+                if (ids.length() > 0) {
+                    ids.append(", ");
+                }
+                ids.append("#").append(id);
             }
+            notificationOutbox.toUser(entry.getKey(), "【系统消息】您的订单 " + ids + " 因超时未支付已自动取消。");
         }
     }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minusMinutes(timeoutMinutes);
+    }
 }
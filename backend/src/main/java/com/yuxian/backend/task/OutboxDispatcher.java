@@ -0,0 +1,218 @@
+package com.yuxian.backend.task;
+
+import com.yuxian.backend.component.MetricsSource;
+import com.yuxian.backend.entity.OutboxMessage;
+import com.yuxian.backend.repository.OutboxMessageRepository;
+import com.yuxian.backend.service.WebSocketServer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 发件箱分发
+ * 单个后台线程按ID顺序批量取出到期消息推送到 WebSocket，事务提交后被唤醒，空闲时按固定间隔轮询兜底。
+ * 同一用户的消息严格按写入顺序发送：某条发送失败后按指数退避重试，在它发出之前该用户后续的消息都不发。
+ * 用户不在线的消息直接标记跳过，与原先同步推送的语义一致；重试次数用尽的消息标记为 DEAD。
+ */
+@Component
+public class OutboxDispatcher implements MetricsSource {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+
+    @Value("${outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${outbox.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${outbox.retention-hours:24}")
+    private long retentionHours;
+
+    private final Semaphore signal = new Semaphore(0);
+    private volatile boolean running = true;
+    private Thread worker;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder lagTotalMillis = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    public OutboxDispatcher(OutboxMessageRepository outboxMessageRepository) {
+        this.outboxMessageRepository = outboxMessageRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker = new Thread(this::run, "outbox-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * 有新消息提交时调用，让分发线程立即处理
+     */
+    public void wakeUp() {
+        if (signal.availablePermits() == 0) {
+            signal.release();
+        }
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void purgeFinished() {
+        int removed = outboxMessageRepository.deleteFinishedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (removed > 0) {
+            System.out.println(">>> 清理已处理的发件箱消息 " + removed + " 条");
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                signal.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                signal.drainPermits();
+                // 一次唤醒可能对应多批消息，取满一批就继续
+                while (running && dispatchBatch() >= batchSize) {
+                    // 继续处理积压
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("发件箱分发异常: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 分发一批到期消息
+     *
+     * @return 本批取出的消息数
+     */
+    int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> due = outboxMessageRepository.findDue(now, PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        List<Long> skippedIds = new ArrayList<>();
+        Set<String> failedUsers = new HashSet<>();
+        for (OutboxMessage message : due) {
+            String recipient = message.getRecipient();
+            if (recipient == null) {
+                // 管理员广播只是刷新提示，尽力送达，不重试
+                WebSocketServer.sendInfo(message.getPayload());
+                sentIds.add(message.getId());
+                recordLag(message, now);
+                continue;
+            }
+            if (failedUsers.contains(recipient)) {
+                // 本批中该用户已有消息失败，后续消息留到它重试成功之后
+                continue;
+            }
+            if (!WebSocketServer.isOnline(recipient)) {
+                skippedIds.add(message.getId());
+                continue;
+            }
+            if (WebSocketServer.sendToUser(recipient, message.getPayload())) {
+                sentIds.add(message.getId());
+                recordLag(message, now);
+            } else {
+                failedUsers.add(recipient);
+                retry(message, now);
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            outboxMessageRepository.markFinished(sentIds, OutboxMessage.SENT, now);
+            sent.add(sentIds.size());
+        }
+        if (!skippedIds.isEmpty()) {
+            outboxMessageRepository.markFinished(skippedIds, OutboxMessage.SKIPPED, now);
+            skipped.add(skippedIds.size());
+        }
+        batches.increment();
+        return due.size();
+    }
+
+    private void retry(OutboxMessage message, LocalDateTime now) {
+        int attempts = message.getAttempts() == null ? 1 : message.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            outboxMessageRepository.scheduleRetry(message.getId(), attempts, now, OutboxMessage.DEAD);
+            dead.increment();
+            System.err.println("发件箱消息 #" + message.getId() + " 多次推送失败，已放弃");
+            return;
+        }
+        long delay = retryBaseMs << Math.min(attempts - 1, 10);
+        outboxMessageRepository.scheduleRetry(message.getId(), attempts, now.plus(Duration.ofMillis(delay)),
+                OutboxMessage.PENDING);
+        retried.increment();
+    }
+
+    private void recordLag(OutboxMessage message, LocalDateTime now) {
+        if (message.getCreateTime() == null) {
+            return;
+        }
+        long lag = Math.max(0, Duration.between(message.getCreateTime(), now).toMillis());
+        lagTotalMillis.add(lag);
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "outbox";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long sentCount = sent.sum();
+        metrics.put("pending", outboxMessageRepository.countPending());
+        metrics.put("sent", sentCount);
+        metrics.put("skipped", skipped.sum());
+        metrics.put("retried", retried.sum());
+        metrics.put("dead", dead.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("lastLagMs", lastLagMillis.get());
+        metrics.put("maxLagMs", maxLagMillis.get());
+        metrics.put("avgLagMs", sentCount == 0 ? 0 : lagTotalMillis.sum() / sentCount);
+        return metrics;
+    }
+}
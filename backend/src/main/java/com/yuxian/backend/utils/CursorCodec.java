@@ -0,0 +1,47 @@
+package com.yuxian.backend.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * 分页游标编解码：把排序键（若干 long）编码为不透明的 URL 安全字符串
+ */
+public final class CursorCodec {
+
+    private static final byte VERSION = 1;
+
+    private CursorCodec() {
+    }
+
+    public static String encode(long... keys) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + keys.length * 8);
+        buffer.put(VERSION);
+        for (long key : keys) {
+            buffer.putLong(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * 解码游标；格式不合法时抛出异常
+     *
+     * @param expectedKeys 排序键个数
+     */
+    public static long[] decode(String cursor, int expectedKeys) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+        if (bytes.length != 1 + expectedKeys * 8 || bytes[0] != VERSION) {
+            throw new RuntimeException("无效的分页游标");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        long[] keys = new long[expectedKeys];
+        for (int i = 0; i < expectedKeys; i++) {
+            keys[i] = buffer.getLong();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,47 @@
+package com.yuxian.backend.utils;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 变长整数（varint）+ zigzag 编码工具，用于时间序列的差值压缩存储
+ */
+public final class DeltaCodec {
+
+    private DeltaCodec() {
+    }
+
+    public static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    /**
+     * 从 data[pos[0]] 开始读取一个变长整数，读取后 pos[0] 指向下一个值
+     */
+    public static long readVarLong(byte[] data, int[] pos) {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public static byte[] append(byte[] data, long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((data != null ? data.length : 0) + 10);
+        if (data != null) {
+            out.write(data, 0, data.length);
+        }
+        writeVarLong(out, value);
+        return out.toByteArray();
+    }
+}
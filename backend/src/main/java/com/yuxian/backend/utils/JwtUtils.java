@@ -1,16 +1,33 @@
 package com.yuxian.backend.utils;
 
+import com.yuxian.backend.component.MetricsSource;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import jakarta.annotation.PostConstruct;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.nio.charset.StandardCharsets;
 
+/**
+ * JWT 签发与校验
+ * 解析器构建一次后复用（线程安全）。校验通过的 Token 按摘要缓存主体与过期时间，
+ * 同一 Token 再次到来时只算一次 SHA-256，不再验签和解析 JSON；条目在 Token 过期时淘汰。
+ * 注销的 Token 与改密前签发的 Token 记录在内存撤销表中，到期后自动清理。
+ * 标准 iat 只精确到秒，另写入毫秒级签发时间 iat_ms，改密撤销按毫秒比较。
+ */
 @Component
-public class JwtUtils {
+public class JwtUtils implements MetricsSource {
 
     @Value("${jwt.secret}")
     private String secretString;
@@ -18,32 +35,181 @@ public class JwtUtils {
     @Value("${jwt.expiration:86400000}")
     private long expirationTime;
 
+    @Value("${jwt.cache.max-size:50000}")
+    private int cacheMaxSize;
+
+    /** 毫秒级签发时间，标准 iat 只到秒 */
+    private static final String ISSUED_AT_MS = "iat_ms";
+
+    private Clock clock = Clock.systemUTC();
+
     private Key key;
 
+    private JwtParser parser;
+
+    /** Token 摘要 -> 已验证的主体 */
+    private final ConcurrentHashMap<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+    /** 已注销的 Token 摘要 -> 该 Token 的过期时间 */
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /** 用户名 -> 此时间（毫秒）及之前签发的 Token 一律失效 */
+    private final ConcurrentHashMap<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(secretString.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).setClock(() -> new Date(clock.millis())).build();
     }
 
     public String generateToken(String username) {
+        long now = clock.millis();
         return Jwts.builder()
                 .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
+                .setIssuedAt(new Date(now))
+                .claim(ISSUED_AT_MS, now)
+                .setExpiration(new Date(now + expirationTime))
                 .signWith(key)
                 .compact();
     }
 
+    /**
+     * 校验 Token，返回用户名；签名错误、过期或已撤销时返回 null
+     */
     public String validateToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String digest = digest(token);
+        long now = clock.millis();
+
+        VerifiedToken cached = verified.get(digest);
+        if (cached != null && cached.expiresAt <= now) {
+            verified.remove(digest, cached);
+            cached = null;
+        }
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            cached = verify(token);
+            if (cached == null) {
+                rejected.increment();
+                return null;
+            }
+            if (verified.size() >= cacheMaxSize) {
+                evictExpired();
+            }
+            if (verified.size() < cacheMaxSize) {
+                verified.put(digest, cached);
+            }
+        }
+
+        if (isRevoked(digest, cached)) {
+            rejected.increment();
+            return null;
+        }
+        return cached.subject;
+    }
+
+    /**
+     * 注销单个 Token（退出登录）
+     */
+    public void revokeToken(String token) {
+        VerifiedToken parsed = verify(token);
+        if (parsed == null) {
+            return;
+        }
+        String digest = digest(token);
+        revokedTokens.put(digest, parsed.expiresAt);
+        verified.remove(digest);
+    }
+
+    /**
+     * 使该用户此刻及之前签发的全部 Token 失效（修改密码）
+     */
+    public void revokeAllFor(String username) {
+        revokedBefore.put(username, clock.millis());
+    }
+
+    /**
+     * 清理过期的缓存条目和撤销记录
+     */
+    @Scheduled(fixedRate = 300000)
+    public void evictExpired() {
+        long now = clock.millis();
+        verified.values().removeIf(v -> v.expiresAt <= now);
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedBefore.values().removeIf(cutoff -> cutoff + expirationTime <= now);
+    }
+
+    private boolean isRevoked(String digest, VerifiedToken token) {
+        if (!revokedTokens.isEmpty() && revokedTokens.containsKey(digest)) {
+            return true;
+        }
+        Long cutoff = revokedBefore.isEmpty() ? null : revokedBefore.get(token.subject);
+        return cutoff != null && token.issuedAt <= cutoff;
+    }
+
+    private VerifiedToken verify(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getSubject() == null || claims.getExpiration() == null) {
+                return null;
+            }
+            // 旧 Token 没有 iat_ms，退回秒级 iat；截断到秒只会让它更早，不会逃过撤销
+            Long issuedAtMs = claims.get(ISSUED_AT_MS, Long.class);
+            long issuedAt = issuedAtMs != null ? issuedAtMs
+                    : claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime();
+            return new VerifiedToken(claims.getSubject(), issuedAt, claims.getExpiration().getTime());
         } catch (Exception e) {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Token 摘要计算失败", e);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "jwt";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        metrics.put("cacheSize", verified.size());
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("revokedTokens", revokedTokens.size());
+        metrics.put("revokedUsers", revokedBefore.size());
+        metrics.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return metrics;
+    }
+
+    private static class VerifiedToken {
+        final String subject;
+        final long issuedAt;
+        final long expiresAt;
+
+        VerifiedToken(String subject, long issuedAt, long expiresAt) {
+            this.subject = subject;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
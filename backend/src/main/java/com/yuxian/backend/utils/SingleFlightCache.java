@@ -0,0 +1,178 @@
+package com.yuxian.backend.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 带 TTL 与容量上限的读穿缓存
+ * 同一 Key 并发未命中时只有一个线程执行加载，其余线程等待同一结果（single-flight）；空结果不缓存。
+ * 每次加载持有一个令牌，invalidate 会作废当前令牌，作废后的加载结果只返回给本批请求，不会写入缓存，
+ * 因此失效之前开始的加载不会把旧数据重新放回来。
+ */
+public class SingleFlightCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Load<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SingleFlightCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            hits.increment();
+            return entry.value;
+        }
+
+        Load<V> mine = new Load<>();
+        Load<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            V value = loader.apply(key);
+            publish(key, mine, value);
+            mine.result.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 删除条目并作废进行中的加载；与 publish 在同一个 Key 的 compute 中互斥
+     */
+    public void invalidate(K key) {
+        invalidations.increment();
+        entries.compute(key, (k, old) -> {
+            Load<V> load = inFlight.remove(k);
+            if (load != null) {
+                load.stale = true;
+            }
+            return null;
+        });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 命中、未命中、合并等待等计数，供各缓存的 getMetrics 使用
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long coalescedCount = coalesced.sum();
+        long total = hitCount + missCount + coalescedCount;
+        metrics.put("size", entries.size());
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("coalesced", coalescedCount);
+        metrics.put("evictions", evictions.sum());
+        metrics.put("invalidations", invalidations.sum());
+        metrics.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return metrics;
+    }
+
+    private void publish(K key, Load<V> mine, V value) {
+        entries.compute(key, (k, old) -> {
+            inFlight.remove(k, mine);
+            if (mine.stale || value == null) {
+                return old;
+            }
+            return new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+        });
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * 超出容量时先清理过期条目，仍超出则按过期时间从早到晚淘汰
+     */
+    private synchronized void evict() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt <= now);
+        trimOldest(entries, maxSize, e -> e.expiresAt, e -> true);
+        evictions.add(Math.max(0, before - entries.size()));
+    }
+
+    /**
+     * 条目数超过上限时，在可淘汰的条目中按时间从早到晚删除，直到低于上限约 10%
+     *
+     * @param map       被裁剪的表
+     * @param maxSize   容量上限
+     * @param age       条目的排序时间，越小越先淘汰
+     * @param evictable 条目是否允许淘汰（如仍在执行中的不淘汰）
+     * @return 实际删除的条目数
+     */
+    public static <K, E> int trimOldest(ConcurrentHashMap<K, E> map, int maxSize, ToLongFunction<E> age,
+            Predicate<E> evictable) {
+        if (map.size() <= maxSize) {
+            return 0;
+        }
+        List<Map.Entry<K, E>> candidates = new ArrayList<>();
+        for (Map.Entry<K, E> e : map.entrySet()) {
+            if (evictable.test(e.getValue())) {
+                candidates.add(e);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(e -> age.applyAsLong(e.getValue())));
+        int toRemove = map.size() - maxSize + Math.max(1, maxSize / 10);
+        int removed = 0;
+        for (int i = 0; i < toRemove && i < candidates.size(); i++) {
+            if (map.remove(candidates.get(i).getKey(), candidates.get(i).getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class Load<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        volatile boolean stale;
+    }
+}
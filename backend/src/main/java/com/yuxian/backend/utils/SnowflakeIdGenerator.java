@@ -0,0 +1,74 @@
+package com.yuxian.backend.utils;
+
+import java.time.Instant;
+
+/**
+ * 按时间递增的 53 位 long ID
+ * 布局：41 位毫秒时间戳（自 2024-01-01 起，约 69 年）| 5 位节点号 | 7 位毫秒内序号，
+ * 最大值不超过 2^53，前端 JavaScript 的 Number 可以精确表示。
+ * 同一毫秒内序号用完或系统时钟回拨时，借用下一毫秒继续发号，不阻塞、不重复。
+ */
+public class SnowflakeIdGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static volatile SnowflakeIdGenerator shared;
+
+    private final long nodeId;
+    private long lastTimestamp = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("节点号必须在 0 ~ " + MAX_NODE + " 之间: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * 全局实例，供 Hibernate 主键生成器使用；须先由 IdGeneratorConfig 按配置的节点号初始化
+     */
+    public static SnowflakeIdGenerator shared() {
+        SnowflakeIdGenerator generator = shared;
+        if (generator == null) {
+            throw new IllegalStateException("主键生成器尚未配置节点号");
+        }
+        return generator;
+    }
+
+    /**
+     * 启动时按配置的节点号初始化全局实例
+     */
+    public static void configure(long nodeId) {
+        shared = new SnowflakeIdGenerator(nodeId);
+    }
+
+    public synchronized long nextId() {
+        long now = System.currentTimeMillis() - EPOCH;
+        if (now > lastTimestamp) {
+            lastTimestamp = now;
+            sequence = 0;
+        } else {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                lastTimestamp++;
+            }
+        }
+        return (lastTimestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 从 ID 中取出生成时间（毫秒时间戳）
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+}
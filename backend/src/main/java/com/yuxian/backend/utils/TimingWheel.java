@@ -0,0 +1,148 @@
+package com.yuxian.backend.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分层时间轮
+ * 共 LEVELS 层，每层 64 格；第 0 层每格一个 tick，第 i 层每格 64^i 个 tick。
+ * 到期时间按距当前的远近放入对应层，低层转完一圈时把上层对应格的任务重新分配到下层，
+ * 因此添加、删除都是 O(1)，推进时只处理当前格。超过最高层范围的任务先挂在最高层，级联时重新计算。
+ * 非线程安全的部分由方法级 synchronized 保护，调用方可从多个线程添加/删除。
+ */
+public class TimingWheel<K> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (BITS * LEVELS);
+
+    private final long tickMillis;
+    private final List<List<Set<K>>> wheels = new ArrayList<>(LEVELS);
+    private final Map<K, Node<K>> index = new HashMap<>();
+    /** 添加时已到期、尚未被 advance 取走的任务 */
+    private final List<K> overdue = new ArrayList<>();
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            List<Set<K>> slots = new ArrayList<>(SLOTS);
+            for (int i = 0; i < SLOTS; i++) {
+                slots.add(new HashSet<>());
+            }
+            wheels.add(slots);
+        }
+    }
+
+    /**
+     * 添加或重置任务的到期时间
+     */
+    public synchronized void add(K key, long deadlineMillis) {
+        remove(key);
+        long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        Node<K> node = new Node<>(key, deadlineTick);
+        index.put(key, node);
+        place(node);
+    }
+
+    public synchronized boolean remove(K key) {
+        Node<K> node = index.remove(key);
+        if (node == null) {
+            return false;
+        }
+        if (node.bucket != null) {
+            node.bucket.remove(key);
+        } else {
+            overdue.remove(key);
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 推进到 nowMillis，返回期间到期的全部任务
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> due = new ArrayList<>(overdue);
+        overdue.clear();
+        for (K key : due) {
+            index.remove(key);
+        }
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            // 低层每转完一圈，把上一层当前格的任务降级
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                Set<K> bucket = wheels.get(level).get((int) ((currentTick >>> (BITS * level)) & MASK));
+                if (bucket.isEmpty()) {
+                    continue;
+                }
+                List<K> keys = new ArrayList<>(bucket);
+                bucket.clear();
+                for (K key : keys) {
+                    place(index.get(key));
+                }
+            }
+
+            Set<K> bucket = wheels.get(0).get((int) (currentTick & MASK));
+            if (!bucket.isEmpty()) {
+                for (K key : bucket) {
+                    index.remove(key);
+                    due.add(key);
+                }
+                bucket.clear();
+            }
+
+            if (!overdue.isEmpty()) {
+                for (K key : overdue) {
+                    index.remove(key);
+                }
+                due.addAll(overdue);
+                overdue.clear();
+            }
+        }
+        return due;
+    }
+
+    private void place(Node<K> node) {
+        long delta = node.deadlineTick - currentTick;
+        if (delta <= 0) {
+            node.bucket = null;
+            overdue.add(node.key);
+            return;
+        }
+        long slotTick = delta < MAX_SPAN ? node.deadlineTick : currentTick + MAX_SPAN - 1;
+        int level = 0;
+        while (level < LEVELS - 1 && (slotTick - currentTick) >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        Set<K> bucket = wheels.get(level).get((int) ((slotTick >>> (BITS * level)) & MASK));
+        bucket.add(node.key);
+        node.bucket = bucket;
+    }
+
+    private static final class Node<K> {
+        final K key;
+        final long deadlineTick;
+        Set<K> bucket;
+
+        Node(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.yuxian.backend;
 import com.yuxian.backend.entity.*;
 import com.yuxian.backend.repository.*;
 import com.yuxian.backend.service.OrderService;
+import com.yuxian.backend.service.StockReservationEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +51,9 @@ public class ConcurrencyTest {
     @Autowired
     private TransactionTemplate transactionTemplate;
 
+    @Autowired
+    private StockReservationEngine stockReservationEngine;
+
     private static final int THREAD_COUNT = 50;
     private static final String TEST_USER_PREFIX = "ct_user_";
 
@@ -254,4 +258,77 @@ public class ConcurrencyTest {
         assertTrue(successCount.get() <= 5,
                 "成功次数超过预期! 成功: " + successCount.get() + " (存在并发漏洞!)");
     }
+
+    @Test
+    void testHotProductReservationContention() throws InterruptedException {
+        int initialStock = 100;
+        int requestThreads = 200;
+
+        Product dbProduct = newStockProduct("并发测试商品-行锁", initialStock);
+        Product hotProduct = newStockProduct("并发测试商品-内存预占", initialStock);
+        stockReservationEngine.enable(hotProduct.getId());
+
+        long dbStart = System.nanoTime();
+        int dbSuccess = runContention(requestThreads,
+                () -> transactionTemplate.execute(status -> productRepository.decreaseStock(dbProduct.getId(), 1) > 0));
+        long dbMillis = (System.nanoTime() - dbStart) / 1_000_000;
+
+        long hotStart = System.nanoTime();
+        int hotSuccess = runContention(requestThreads,
+                () -> transactionTemplate.execute(status -> stockReservationEngine.reserve(hotProduct.getId(), 1)
+                        == StockReservationEngine.Result.RESERVED));
+        long hotMillis = (System.nanoTime() - hotStart) / 1_000_000;
+
+        stockReservationEngine.flush();
+        Product finalHot = productRepository.findById(hotProduct.getId()).orElseThrow();
+        stockReservationEngine.disable(hotProduct.getId());
+
+        System.out.println("========================================");
+        System.out.println("【热点商品库存争用测试结果】");
+        System.out.println("数据库行锁扣减: 成功 " + dbSuccess + ", 耗时 " + dbMillis + "ms");
+        System.out.println("内存分段预占: 成功 " + hotSuccess + ", 耗时 " + hotMillis + "ms");
+        System.out.println("回写后数据库库存: " + finalHot.getStock());
+        System.out.println("========================================");
+
+        assertEquals(initialStock, dbSuccess, "行锁扣减成功数应该等于初始库存");
+        assertEquals(initialStock, hotSuccess, "内存预占成功数应该等于初始库存");
+        assertEquals(0, finalHot.getStock(), "回写后库存应该为0");
+    }
+
+    private Product newStockProduct(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("99.00"));
+        product.setStock(stock);
+        product.setCategory("test");
+        product.setImageUrl("/test.jpg");
+        return productRepository.save(product);
+    }
+
+    private int runContention(int threads, Callable<Boolean> attempt) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch endLatch = new CountDownLatch(threads);
+        AtomicInteger successCount = new AtomicInteger(0);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    startLatch.await();
+                    if (Boolean.TRUE.equals(attempt.call())) {
+                        successCount.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    // 失败计为未抢到
+                } finally {
+                    endLatch.countDown();
+                }
+            });
+        }
+
+        startLatch.countDown();
+        endLatch.await(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        return successCount.get();
+    }
 }
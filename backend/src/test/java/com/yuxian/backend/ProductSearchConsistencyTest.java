@@ -0,0 +1,118 @@
+package com.yuxian.backend;
+
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.service.ProductSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 倒排索引与 LIKE 子串匹配的结果一致性，以及两者的耗时对比
+ * 关键字均不超过两个字符，索引查询只有一个词项，结果应与四个字段上的子串匹配完全相同
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ProductSearchConsistencyTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    private static final String[] KEYWORDS = { "带鱼", "龙虾", "舟山", "蟹", "鱼", "em", "rem" };
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 2000;
+
+    private Long testProductId;
+
+    @BeforeEach
+    void setup() {
+        Product product = new Product();
+        product.setName("检索测试东海大带鱼 Premium");
+        product.setOrigin("舟山");
+        product.setCategory("test");
+        product.setDescription("检索一致性测试商品");
+        product.setListDate(LocalDate.now());
+        product.setPrice(new BigDecimal("58.00"));
+        product.setStock(100);
+        product.setImageUrl("/test.jpg");
+        testProductId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (testProductId != null) {
+            productRepository.deleteById(testProductId);
+            productSearchIndex.remove(testProductId);
+        }
+    }
+
+    @Test
+    void testIndexMatchesLikeSearch() {
+        assertTrue(productSearchIndex.search("大带鱼", 50).contains(testProductId), "新增商品未被增量索引");
+        assertTrue(productSearchIndex.search("rem", 50).contains(testProductId), "英文片段未命中");
+
+        for (String keyword : KEYWORDS) {
+            Set<Long> indexed = new HashSet<>(productSearchIndex.search(keyword, Integer.MAX_VALUE));
+
+            for (Product product : productRepository.findByNameContaining(keyword)) {
+                assertTrue(indexed.contains(product.getId()),
+                        "索引漏掉了名称包含「" + keyword + "」的商品: " + product.getName());
+            }
+
+            Set<Long> expected = new HashSet<>();
+            for (Product product : productRepository.findAll()) {
+                if (contains(product.getName(), keyword) || contains(product.getCategory(), keyword)
+                        || contains(product.getOrigin(), keyword) || contains(product.getDescription(), keyword)) {
+                    expected.add(product.getId());
+                }
+            }
+            assertEquals(expected, indexed, "关键字「" + keyword + "」的索引结果与子串匹配不一致");
+        }
+    }
+
+    /**
+     * 只输出耗时，不做断言：墙钟时间受机器负载影响，不适合作为通过条件
+     */
+    @Test
+    void benchmarkIndexVsLike() {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            String keyword = KEYWORDS[i % KEYWORDS.length];
+            productSearchIndex.searchHits(keyword, Integer.MAX_VALUE);
+            productRepository.findByNameContaining(keyword);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            productSearchIndex.searchHits(KEYWORDS[i % KEYWORDS.length], Integer.MAX_VALUE);
+        }
+        long indexNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            productRepository.findByNameContaining(KEYWORDS[i % KEYWORDS.length]);
+        }
+        long likeNanos = System.nanoTime() - start;
+
+        System.out.println("========================================");
+        System.out.println("【商品检索性能对比】 每次查询平均耗时");
+        System.out.printf("倒排索引: %.2f µs%n", indexNanos / 1000.0 / MEASURE_ROUNDS);
+        System.out.printf("LIKE 查询: %.2f µs%n", likeNanos / 1000.0 / MEASURE_ROUNDS);
+        System.out.println("========================================");
+    }
+
+    private static boolean contains(String text, String keyword) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(keyword.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,119 @@
+package com.yuxian.backend;
+
+import com.yuxian.backend.dto.RefundDetailVO;
+import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
+import com.yuxian.backend.entity.RefundFeedback;
+import com.yuxian.backend.repository.OrderRepository;
+import com.yuxian.backend.repository.RefundFeedbackRepository;
+import com.yuxian.backend.service.OrderService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 售后工单列表的 SQL 条数断言：无论待审核订单有多少，列表只发一条查询，分页只多一条 count
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.yuxian.backend.RefundQueryCountTest$CountingInspector")
+public class RefundQueryCountTest {
+
+    private static final int ORDER_COUNT = 12;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private RefundFeedbackRepository refundFeedbackRepository;
+
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() {
+        for (Long orderId : orderIds) {
+            refundFeedbackRepository.deleteAll(refundFeedbackRepository.findByOrderId(orderId));
+            orderRepository.deleteById(orderId);
+        }
+    }
+
+    @Test
+    void testPendingRefundsUseSingleQuery() {
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            OrderRecord order = new OrderRecord();
+            order.setUsername("rq_user_" + i);
+            order.setTotalPrice(new BigDecimal("10.00"));
+            order.setStatus(OrderStatus.REFUND_PENDING);
+            order.setCreateTime(LocalDateTime.now().minusMinutes(i));
+            order.setProductNames("测试商品");
+            order = orderRepository.save(order);
+            orderIds.add(order.getId());
+
+            saveFeedback(order.getId(), "旧原因 " + i);
+            saveFeedback(order.getId(), "最新原因 " + i);
+        }
+
+        CountingInspector.reset();
+        List<RefundDetailVO> refunds = orderService.getPendingRefundsWithDetails();
+        assertEquals(1, CountingInspector.count(), "售后列表应只发一条 SQL");
+
+        int found = 0;
+        for (RefundDetailVO vo : refunds) {
+            int index = orderIds.indexOf(vo.getOrderId());
+            if (index >= 0) {
+                assertEquals("最新原因 " + index, vo.getReason());
+                found++;
+            }
+        }
+        assertEquals(ORDER_COUNT, found, "每个订单只应出现一次");
+
+        CountingInspector.reset();
+        Map<String, Object> page = orderService.getPendingRefundPage(1, 5, "applyTime", "desc");
+        assertEquals(2, CountingInspector.count(), "分页查询应为一条数据 SQL 加一条 count");
+        assertEquals(5, ((List<?>) page.get("content")).size());
+        assertTrue((Long) page.get("totalElements") >= ORDER_COUNT);
+    }
+
+    private void saveFeedback(Long orderId, String content) {
+        RefundFeedback feedback = new RefundFeedback();
+        feedback.setOrderId(orderId);
+        feedback.setType(2);
+        feedback.setContent(content);
+        feedback.setOperator("rq_user");
+        refundFeedbackRepository.save(feedback);
+    }
+
+    /**
+     * 按线程统计 SQL 条数，避免定时任务等后台线程的查询干扰断言
+     */
+    public static class CountingInspector implements StatementInspector {
+
+        private static final ThreadLocal<int[]> COUNTER = ThreadLocal.withInitial(() -> new int[1]);
+
+        static void reset() {
+            COUNTER.get()[0] = 0;
+        }
+
+        static int count() {
+            return COUNTER.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNTER.get()[0]++;
+            return sql;
+        }
+    }
+}
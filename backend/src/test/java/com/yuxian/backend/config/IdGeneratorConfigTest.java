@@ -0,0 +1,21 @@
+package com.yuxian.backend.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdGeneratorConfigTest {
+
+    /**
+     * 未配置、非整数或超出 0 ~ 31 的节点号都直接启动失败，不再自动选取
+     */
+    @Test
+    void testMissingOrInvalidNodeIdFailsFast() {
+        assertThrows(IllegalStateException.class, () -> IdGeneratorConfig.parseNodeId(""));
+        assertThrows(IllegalStateException.class, () -> IdGeneratorConfig.parseNodeId("-1"));
+        assertThrows(IllegalStateException.class, () -> IdGeneratorConfig.parseNodeId("32"));
+        assertThrows(IllegalStateException.class, () -> IdGeneratorConfig.parseNodeId("node-a"));
+        assertEquals(31L, IdGeneratorConfig.parseNodeId(" 31 "));
+    }
+}
@@ -0,0 +1,47 @@
+package com.yuxian.backend.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatusTest {
+
+    @Test
+    void testParseAcceptsLegacyLabels() {
+        assertEquals(OrderStatus.DELIVERED, OrderStatus.parse("已送达"));
+        assertEquals(OrderStatus.DELIVERED, OrderStatus.parse("DELIVERED"));
+        assertEquals(OrderStatus.REFUND_PENDING, OrderStatus.parse("售后处理中"));
+        assertEquals(OrderStatus.PAID, OrderStatus.parse("待发货"));
+        assertThrows(RuntimeException.class, () -> OrderStatus.parse("不存在"));
+
+        for (OrderStatus status : OrderStatus.values()) {
+            assertEquals(status, OrderStatus.fromCode(status.getCode()));
+        }
+    }
+
+    @Test
+    void testTransitions() {
+        OrderRecord order = new OrderRecord();
+        order.setStatus(OrderStatus.UNPAID);
+        order.transitionTo(OrderStatus.PAID);
+        order.transitionTo(OrderStatus.SHIPPED);
+        order.transitionTo(OrderStatus.DELIVERED);
+        order.transitionTo(OrderStatus.REFUND_PENDING);
+        order.transitionTo(OrderStatus.REFUNDED);
+
+        assertThrows(RuntimeException.class, () -> order.transitionTo(OrderStatus.PAID), "终态不能再变更");
+        assertFalse(OrderStatus.UNPAID.canTransitionTo(OrderStatus.DELIVERED));
+        assertFalse(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.PAID));
+    }
+
+    @Test
+    void testAdminOverrides() {
+        assertTrue(OrderStatus.PAID.canAdminOverride(OrderStatus.CANCELLED));
+        assertTrue(OrderStatus.SHIPPED.canAdminOverride(OrderStatus.REFUNDED));
+        assertTrue(OrderStatus.DELIVERED.canAdminOverride(OrderStatus.REFUNDED));
+        assertTrue(OrderStatus.UNPAID.canAdminOverride(OrderStatus.CANCELLED), "正常流转同样允许");
+        assertFalse(OrderStatus.CANCELLED.canAdminOverride(OrderStatus.PAID), "终态不能被改回");
+        assertFalse(OrderStatus.REFUNDED.canAdminOverride(OrderStatus.DELIVERED));
+        assertFalse(OrderStatus.UNPAID.canAdminOverride(OrderStatus.SHIPPED), "未付款的订单不能直接发货");
+    }
+}
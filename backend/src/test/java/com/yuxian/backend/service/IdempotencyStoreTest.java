@@ -0,0 +1,172 @@
+package com.yuxian.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuxian.backend.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    private IdempotencyStore store;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(recordRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(store, "ttlHours", 24L);
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "waitSeconds", 5L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testCompletedRequestIsReplayed() {
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseEntity<?> first = store.execute("alice", "pay", "k1", Map.of("orderId", 1),
+                () -> ResponseEntity.ok("paid-" + calls.incrementAndGet()));
+        ResponseEntity<?> second = store.execute("alice", "pay", "k1", Map.of("orderId", 1),
+                () -> ResponseEntity.ok("paid-" + calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals("paid-1", body(second));
+    }
+
+    @Test
+    void testSameKeyWithDifferentBodyIsRejected() {
+        store.execute("alice", "pay", "k1", Map.of("orderId", 1), () -> ResponseEntity.ok("paid"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> store.execute("alice", "pay", "k1",
+                Map.of("orderId", 2), () -> ResponseEntity.ok("paid")));
+
+        assertEquals("Idempotency-Key 已用于其他请求", e.getMessage());
+        assertEquals(1L, store.getMetrics().get("conflicts"));
+    }
+
+    /**
+     * 执行中到达的重复请求等待第一次的结果，而不是再执行一遍
+     */
+    @Test
+    void testConcurrentDuplicateWaitsForFirstResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<ResponseEntity<?>> first = executor.submit(() -> store.execute("alice", "pay", "k1",
+                Map.of("orderId", 1), () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return ResponseEntity.ok("paid");
+                }));
+        awaitCalls(calls);
+
+        Thread releaser = releaseWhenWaiting(release);
+        ResponseEntity<?> duplicate = store.execute("alice", "pay", "k1", Map.of("orderId", 1), () -> {
+            calls.incrementAndGet();
+            return ResponseEntity.ok("again");
+        });
+        releaser.join();
+
+        assertEquals(1, calls.get());
+        assertEquals("paid", body(duplicate));
+        assertEquals("true", duplicate.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals("paid", body(first.get(5, TimeUnit.SECONDS)));
+    }
+
+    /**
+     * 第一次执行失败时等待者收到同一个异常，之后可以用同一 Key 重试
+     */
+    @Test
+    void testFailurePropagatesToWaiterAndKeyCanBeRetried() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        RuntimeException failure = new RuntimeException("余额不足");
+        Future<ResponseEntity<?>> first = executor.submit(() -> store.execute("alice", "pay", "k1",
+                Map.of("orderId", 1), () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    throw failure;
+                }));
+        awaitCalls(calls);
+
+        Thread releaser = releaseWhenWaiting(release);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> store.execute("alice", "pay", "k1",
+                Map.of("orderId", 1), () -> ResponseEntity.ok("again")));
+        releaser.join();
+
+        assertSame(failure, e);
+        ExecutionException original = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertSame(failure, original.getCause());
+
+        ResponseEntity<?> retry = store.execute("alice", "pay", "k1", Map.of("orderId", 1),
+                () -> ResponseEntity.ok("paid"));
+        assertEquals("paid", body(retry));
+        assertNull(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    /**
+     * 等到重复请求进入等待（waited 计数增加）后放行第一次执行
+     */
+    private Thread releaseWhenWaiting(CountDownLatch release) {
+        Thread t = new Thread(() -> {
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((Long) store.getMetrics().get("waited") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+        });
+        t.start();
+        return t;
+    }
+
+    private static void awaitCalls(AtomicInteger calls) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (calls.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(calls.get() > 0, "第一次执行未开始");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String body(ResponseEntity<?> response) {
+        return new String((byte[]) response.getBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.exception.QueueFullException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    @Test
+    void testBucketRefillsOverTime() {
+        long start = 0;
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket(2, 6, start);
+
+        assertEquals(0, bucket.tryAcquire(start));
+        assertEquals(0, bucket.tryAcquire(start));
+        assertEquals(10, bucket.tryAcquire(start), "每分钟 6 个令牌，空桶应等待 10 秒");
+
+        assertEquals(0, bucket.tryAcquire(start + TimeUnit.SECONDS.toNanos(10)));
+        assertTrue(bucket.tryAcquire(start + TimeUnit.SECONDS.toNanos(10)) > 0);
+        assertTrue(bucket.isFull(start + TimeUnit.MINUTES.toNanos(1)));
+    }
+
+    @Test
+    void testUsernameBucketIsIndependentOfIp() {
+        LoginRateLimiter limiter = new LoginRateLimiter();
+        ReflectionTestUtils.setField(limiter, "userBurst", 3);
+        ReflectionTestUtils.setField(limiter, "userPerMinute", 1);
+        ReflectionTestUtils.setField(limiter, "ipBurst", 100);
+        ReflectionTestUtils.setField(limiter, "ipPerMinute", 100);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("alice", "10.0.0." + i);
+        }
+        QueueFullException e = assertThrows(QueueFullException.class, () -> limiter.acquire("alice", "10.0.0.9"),
+                "换 IP 也不能绕过同一账号的限制");
+        assertTrue(e.getRetryAfterSeconds() > 0);
+        limiter.acquire("bob", "10.0.0.9");
+    }
+}
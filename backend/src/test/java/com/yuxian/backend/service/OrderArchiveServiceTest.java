@@ -0,0 +1,113 @@
+package com.yuxian.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yuxian.backend.entity.ArchivedOrder;
+import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
+import com.yuxian.backend.repository.ArchivedOrderRepository;
+import com.yuxian.backend.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderArchiveServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private OrderArchiveService archiveService;
+
+    /** 归档表中按创建时间倒序的 5 笔订单，ID 1..5 */
+    private final List<ArchivedOrder> archived = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        archiveService = new OrderArchiveService(orderRepository, archivedOrderRepository, transactionTemplate,
+                objectMapper);
+        for (long id = 1; id <= 5; id++) {
+            ArchivedOrder order = new ArchivedOrder();
+            order.setId(id);
+            order.setUsername("archive_user");
+            order.setStatus(OrderStatus.DELIVERED);
+            order.setTotalPrice(new BigDecimal("9.90"));
+            order.setCreateTime(LocalDateTime.now().minusDays(200 + id));
+            order.setItemsJson("[{\"id\":2,\"productId\":7,\"quantity\":1},{\"id\":1,\"productId\":8,\"quantity\":2}]");
+            archived.add(order);
+        }
+    }
+
+    @Test
+    void testSearchSlicesAcrossUnalignedPages() {
+        when(archivedOrderRepository.findAllByOrderByCreateTimeDesc(any())).thenAnswer(inv -> {
+            Pageable pageable = inv.getArgument(0);
+            int from = (int) Math.min(pageable.getOffset(), archived.size());
+            int to = Math.min(from + pageable.getPageSize(), archived.size());
+            return new PageImpl<>(archived.subList(from, to), pageable, archived.size());
+        });
+
+        OrderArchiveService.ArchiveSlice slice = archiveService.search(null, null, 2, 3);
+
+        assertEquals(5, slice.getTotal());
+        List<Long> ids = new ArrayList<>();
+        for (OrderRecord order : slice.getContent()) {
+            ids.add(order.getId());
+        }
+        assertEquals(List.of(3L, 4L, 5L), ids);
+        assertEquals(List.of(1L, 2L), List.of(slice.getContent().get(0).getItems().get(0).getId(),
+                slice.getContent().get(0).getItems().get(1).getId()), "明细应按原ID排序还原");
+    }
+
+    @Test
+    void testSearchSkipsArchiveForActiveStatus() {
+        OrderArchiveService.ArchiveSlice slice = archiveService.search(null, OrderStatus.PAID, 0, 10);
+
+        assertEquals(0, slice.getTotal());
+        assertTrue(slice.getContent().isEmpty());
+        verify(archivedOrderRepository, never()).findByStatusOrderByCreateTimeDesc(any(), any());
+    }
+
+    @Test
+    void testMergedArchiveOrdersAreReadOnlyButDeletable() {
+        ArchivedOrder cancelled = archived.get(0);
+        cancelled.setStatus(OrderStatus.CANCELLED);
+        when(archivedOrderRepository.findByUsernameOrderByCreateTimeDesc("archive_user")).thenReturn(archived);
+        when(archivedOrderRepository.findById(1L)).thenReturn(java.util.Optional.of(cancelled));
+        when(archivedOrderRepository.findById(2L)).thenReturn(java.util.Optional.of(archived.get(1)));
+        when(archivedOrderRepository.findById(99L)).thenReturn(java.util.Optional.empty());
+
+        List<OrderRecord> merged = archiveService.mergeUserOrders("archive_user", new ArrayList<>());
+        assertTrue(merged.stream().allMatch(OrderRecord::isArchived));
+
+        assertFalse(archiveService.deleteUserOrder(99L, "archive_user", null));
+        assertThrows(RuntimeException.class,
+                () -> archiveService.deleteUserOrder(2L, "archive_user", java.util.EnumSet.of(OrderStatus.CANCELLED)));
+        assertThrows(RuntimeException.class, () -> archiveService.deleteUserOrder(1L, "someone_else", null));
+        assertTrue(archiveService.deleteUserOrder(1L, "archive_user", java.util.EnumSet.of(OrderStatus.CANCELLED)));
+        verify(archivedOrderRepository).delete(cancelled);
+    }
+}
@@ -12,12 +12,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.when;
@@ -34,6 +36,12 @@ class OrderExceptionTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private StockReservationEngine stockReservationEngine;
+
     @InjectMocks
     private OrderServiceImpl orderService;
 
@@ -53,8 +61,9 @@ class OrderExceptionTest {
         product.setPrice(new BigDecimal("100.00"));
         product.setStock(10);
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(productRepository.decreaseStock(anyLong(), anyInt())).thenReturn(1);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(stockReservationEngine.reserve(anyLong(), anyInt())).thenReturn(StockReservationEngine.Result.NOT_MANAGED);
+        when(productRepository.decreaseStockBatch(any())).thenReturn(null);
         when(userCouponRepository.findById(couponId)).thenReturn(Optional.of(expiredCoupon));
 
         List<Map<String, Object>> items = new ArrayList<>();
@@ -0,0 +1,115 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.dto.OrderIntakeStatus;
+import com.yuxian.backend.entity.Address;
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIntakeQueueTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private StockReservationEngine stockReservationEngine;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private OrderIntakeQueue intakeQueue;
+
+    /** 不启动后台线程，由测试直接取出队列内容交给 process */
+    private BlockingQueue<Object> queue;
+
+    @BeforeEach
+    void setUp() {
+        intakeQueue = new OrderIntakeQueue(orderService, productCatalog, productRepository,
+                stockReservationEngine, transactionTemplate);
+        queue = new ArrayBlockingQueue<>(10);
+        ReflectionTestUtils.setField(intakeQueue, "queue", queue);
+
+        ProductCatalog.Snapshot snapshot = mock(ProductCatalog.Snapshot.class);
+        when(snapshot.getProduct(1L)).thenReturn(new Product());
+        when(productCatalog.current()).thenReturn(snapshot);
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    /**
+     * 整组在一个事务内创建成功，各受理单拿到各自的订单号
+     */
+    @Test
+    void testBatchIsCreatedInOneTransaction() {
+        OrderIntakeStatus alice = intakeQueue.submit("alice", items(), new Address(), null);
+        OrderIntakeStatus bob = intakeQueue.submit("bob", items(), new Address(), null);
+        when(orderService.createOrder(eq("alice"), any(), any(), any())).thenReturn(11L);
+        when(orderService.createOrder(eq("bob"), any(), any(), any())).thenReturn(12L);
+
+        drainAndProcess();
+
+        assertEquals(11L, intakeQueue.getStatus(alice.getTicket(), "alice").getOrderId());
+        assertEquals(12L, intakeQueue.getStatus(bob.getTicket(), "bob").getOrderId());
+        assertEquals(1L, intakeQueue.getMetrics().get("groupCommits"));
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    /**
+     * 组内一笔失败时整组回滚，再逐笔重试：失败的那笔单独报错，其余照常成功
+     */
+    @Test
+    void testFailedMemberFallsBackToSingleOrders() {
+        OrderIntakeStatus alice = intakeQueue.submit("alice", items(), new Address(), null);
+        OrderIntakeStatus bob = intakeQueue.submit("bob", items(), new Address(), null);
+        when(orderService.createOrder(eq("alice"), any(), any(), any())).thenReturn(11L, 13L);
+        when(orderService.createOrder(eq("bob"), any(), any(), any())).thenThrow(new RuntimeException("库存不足"));
+
+        drainAndProcess();
+
+        OrderIntakeStatus aliceResult = intakeQueue.getStatus(alice.getTicket(), "alice");
+        OrderIntakeStatus bobResult = intakeQueue.getStatus(bob.getTicket(), "bob");
+        assertEquals(OrderIntakeStatus.SUCCESS, aliceResult.getStatus());
+        assertEquals(13L, aliceResult.getOrderId(), "回滚后应以单独重试的订单号为准");
+        assertEquals(OrderIntakeStatus.FAILED, bobResult.getStatus());
+        assertEquals("库存不足", bobResult.getMessage());
+        assertEquals(1L, intakeQueue.getMetrics().get("groupFallbacks"));
+    }
+
+    private void drainAndProcess() {
+        List<Object> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        ReflectionTestUtils.invokeMethod(intakeQueue, "process", batch);
+    }
+
+    private static List<Map<String, Object>> items() {
+        return List.of(Map.of("id", 1L, "quantity", 1));
+    }
+}
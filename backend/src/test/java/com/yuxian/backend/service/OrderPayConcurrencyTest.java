@@ -0,0 +1,107 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.config.AuthUser;
+import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
+import com.yuxian.backend.repository.OrderRepository;
+import com.yuxian.backend.repository.UserRepository;
+import com.yuxian.backend.repository.WalletLogRepository;
+import com.yuxian.backend.service.impl.OrderServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPayConcurrencyTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WalletLogRepository walletLogRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @InjectMocks
+    private OrderServiceImpl orderService;
+
+    /**
+     * 两个请求同时读到同一笔待支付订单，只有抢到状态更新的一个扣款并记账
+     */
+    @Test
+    void concurrentPayOfSameOrderChargesOnce() throws Exception {
+        Long orderId = 7L;
+        AuthUser payer = new AuthUser(1L, "alice", "USER");
+        CountDownLatch bothLoaded = new CountDownLatch(2);
+        AtomicBoolean unpaid = new AtomicBoolean(true);
+
+        when(orderRepository.findById(orderId)).thenAnswer(inv -> {
+            OrderRecord order = new OrderRecord();
+            order.setId(orderId);
+            order.setUsername("alice");
+            order.setStatus(OrderStatus.UNPAID);
+            order.setTotalPrice(new BigDecimal("50.00"));
+            bothLoaded.countDown();
+            bothLoaded.await(5, TimeUnit.SECONDS);
+            return Optional.of(order);
+        });
+        when(orderRepository.updateStatus(List.of(orderId), OrderStatus.UNPAID, OrderStatus.PAID))
+                .thenAnswer(inv -> unpaid.compareAndSet(true, false) ? 1 : 0);
+        when(userRepository.deductBalance(anyLong(), any())).thenReturn(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(pool.submit(() -> orderService.payOrder(orderId, payer, "BALANCE")));
+        }
+
+        int succeeded = 0;
+        int rejected = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertEquals("订单状态异常，无法支付", e.getCause().getMessage());
+                rejected++;
+            }
+        }
+        pool.shutdown();
+
+        assertTrue(bothLoaded.await(0, TimeUnit.SECONDS));
+        assertEquals(1, succeeded);
+        assertEquals(1, rejected);
+        verify(userRepository, times(1)).deductBalance(1L, new BigDecimal("50.00"));
+        verify(walletLogRepository, times(1)).save(any());
+    }
+}
@@ -0,0 +1,144 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.OrderItem;
+import com.yuxian.backend.entity.OrderRecord;
+import com.yuxian.backend.entity.OrderStatus;
+import com.yuxian.backend.repository.OrderRepository;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.repository.RefundFeedbackRepository;
+import com.yuxian.backend.repository.UserRepository;
+import com.yuxian.backend.repository.WalletLogRepository;
+import com.yuxian.backend.service.impl.OrderServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderRefundAuditTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WalletLogRepository walletLogRepository;
+
+    @Mock
+    private RefundFeedbackRepository refundFeedbackRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private StockReservationEngine stockReservationEngine;
+
+    @InjectMocks
+    private OrderServiceImpl orderService;
+
+    /**
+     * 内存中读到的是旧的售后状态，但订单已被批量审核处理：条件更新落空，不再二次退款
+     */
+    @Test
+    void testStaleReadDoesNotRefundTwice() {
+        when(orderRepository.findById(5L)).thenReturn(Optional.of(pendingOrder()));
+        when(orderRepository.updateStatus(List.of(5L), OrderStatus.REFUND_PENDING, OrderStatus.REFUNDED))
+                .thenReturn(0);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> orderService.auditRefund(5L, true, null, "admin"));
+
+        assertEquals("该订单当前不在售后流程中", e.getMessage());
+        verify(userRepository, never()).addBalance(anyLong(), any());
+        verify(walletLogRepository, never()).save(any());
+    }
+
+    @Test
+    void testApprovedRefundCreditsByUserId() {
+        when(orderRepository.findById(5L)).thenReturn(Optional.of(pendingOrder()));
+        when(orderRepository.updateStatus(List.of(5L), OrderStatus.REFUND_PENDING, OrderStatus.REFUNDED))
+                .thenReturn(1);
+        List<Object[]> ids = new ArrayList<>();
+        ids.add(new Object[] { "alice", 9L });
+        when(userRepository.findIdsByUsernames(List.of("alice"))).thenReturn(ids);
+
+        orderService.auditRefund(5L, true, null, "admin");
+
+        verify(userRepository).addBalance(9L, new BigDecimal("30.00"));
+        verify(walletLogRepository).save(any());
+    }
+
+    /**
+     * 管理员取消已支付订单：抢占状态后退回余额、归还库存并通知用户
+     */
+    @Test
+    void testAdminCancelOfPaidOrderRefundsAndRestocks() {
+        OrderRecord order = pendingOrder();
+        order.setStatus(OrderStatus.PAID);
+        OrderItem item = new OrderItem();
+        item.setProductId(100L);
+        item.setQuantity(2);
+        order.setItems(new ArrayList<>(List.of(item)));
+        when(orderRepository.findById(5L)).thenReturn(Optional.of(order));
+        when(orderRepository.overrideStatus(List.of(5L), OrderStatus.PAID, OrderStatus.CANCELLED)).thenReturn(1);
+        List<Object[]> ids = new ArrayList<>();
+        ids.add(new Object[] { "alice", 9L });
+        when(userRepository.findIdsByUsernames(List.of("alice"))).thenReturn(ids);
+        SortedMap<Long, Integer> restock = new TreeMap<>(Map.of(100L, 2));
+        when(stockReservationEngine.releaseAll(restock)).thenReturn(restock);
+
+        orderService.overrideStatus(5L, OrderStatus.CANCELLED);
+
+        verify(userRepository).addBalance(9L, new BigDecimal("30.00"));
+        verify(productRepository).adjustStockBatch(restock);
+        verify(notificationOutbox).toUser(eq("alice"), contains("CANCELLED"));
+    }
+
+    @Test
+    void testAdminOverrideOutsideAllowedSetIsRejected() {
+        OrderRecord order = pendingOrder();
+        order.setStatus(OrderStatus.CANCELLED);
+        when(orderRepository.findById(5L)).thenReturn(Optional.of(order));
+
+        assertThrows(RuntimeException.class, () -> orderService.overrideStatus(5L, OrderStatus.PAID));
+        verify(orderRepository, never()).overrideStatus(any(), any(), any());
+    }
+
+    private static OrderRecord pendingOrder() {
+        OrderRecord order = new OrderRecord();
+        order.setId(5L);
+        order.setUsername("alice");
+        order.setStatus(OrderStatus.REFUND_PENDING);
+        order.setTotalPrice(new BigDecimal("30.00"));
+        order.setItems(new ArrayList<>());
+        return order;
+    }
+}
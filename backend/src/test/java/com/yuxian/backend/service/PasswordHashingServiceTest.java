@@ -0,0 +1,102 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.exception.QueueFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+
+    private PasswordHashingService create(PasswordEncoder encoder, int threads, int queueCapacity) {
+        PasswordHashingService s = new PasswordHashingService(encoder);
+        ReflectionTestUtils.setField(s, "threads", threads);
+        ReflectionTestUtils.setField(s, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(s, "timeoutMs", 3000L);
+        ReflectionTestUtils.setField(s, "verifiedTtlMinutes", 30L);
+        ReflectionTestUtils.setField(s, "verifiedMaxSize", 100);
+        s.start();
+        return s;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void testVerifiedCredentialsSkipBcryptUntilHashChanges() {
+        AtomicInteger bcryptCalls = new AtomicInteger();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        PasswordEncoder counting = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence raw) {
+                return bcrypt.encode(raw);
+            }
+
+            @Override
+            public boolean matches(CharSequence raw, String encoded) {
+                bcryptCalls.incrementAndGet();
+                return bcrypt.matches(raw, encoded);
+            }
+        };
+        service = create(counting, 1, 4);
+
+        String hash = service.encode("secret");
+        assertTrue(service.matches("alice", "secret", hash));
+        assertTrue(service.matches("alice", "secret", hash));
+        assertEquals(1, bcryptCalls.get(), "相同凭据第二次登录不应再运行 BCrypt");
+
+        assertFalse(service.matches("alice", "wrong", hash), "错误密码不能命中缓存");
+        String newHash = service.encode("changed");
+        assertFalse(service.matches("alice", "secret", newHash), "改密后旧凭据摘要应失效");
+        assertEquals(3, bcryptCalls.get());
+    }
+
+    @Test
+    void testFullQueueFailsFast() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence raw) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return raw.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence raw, String encoded) {
+                return false;
+            }
+        };
+        service = create(blocking, 1, 1);
+
+        Thread first = new Thread(() -> service.encode("a"));
+        Thread second = new Thread(() -> service.encode("b"));
+        first.start();
+        second.start();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (((ThreadPoolExecutor) ReflectionTestUtils.getField(service, "executor"))
+                .getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThrows(QueueFullException.class, () -> service.encode("c"), "线程和队列都占满时应立即拒绝");
+        release.countDown();
+        first.join();
+        second.join();
+    }
+}
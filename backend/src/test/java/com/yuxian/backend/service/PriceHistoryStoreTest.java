@@ -0,0 +1,180 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.PriceRollup;
+import com.yuxian.backend.entity.PriceSeriesChunk;
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.repository.PriceRollupRepository;
+import com.yuxian.backend.repository.PriceSeriesChunkRepository;
+import com.yuxian.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 价格存储用内存中的假仓库驱动，覆盖差值分块、每日汇总环与启动补录
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PriceHistoryStoreTest {
+
+    @Mock
+    private PriceSeriesChunkRepository chunkRepository;
+
+    @Mock
+    private PriceRollupRepository rollupRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private PriceHistoryStore store;
+    private final List<PriceSeriesChunk> chunks = new ArrayList<>();
+    private final Map<Long, PriceRollup> rollups = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        store = new PriceHistoryStore(chunkRepository, rollupRepository, productRepository, productCatalog,
+                transactionTemplate);
+        when(productRepository.lockById(anyLong())).thenAnswer(inv -> inv.getArgument(0));
+        when(chunkRepository.findFirstByProductIdAndSealedFalse(anyLong())).thenAnswer(inv -> chunks.stream()
+                .filter(c -> c.getProductId().equals(inv.getArgument(0)) && !c.getSealed())
+                .findFirst().orElse(null));
+        when(chunkRepository.save(any())).thenAnswer(inv -> {
+            PriceSeriesChunk chunk = inv.getArgument(0);
+            if (!chunks.contains(chunk)) {
+                chunks.add(chunk);
+            }
+            return chunk;
+        });
+        when(chunkRepository.findByProductIdOrderByStartEpochSecondAsc(anyLong())).thenAnswer(inv -> chunks);
+        when(rollupRepository.findById(anyLong()))
+                .thenAnswer(inv -> Optional.ofNullable(rollups.get((Long) inv.getArgument(0))));
+        when(rollupRepository.save(any())).thenAnswer(inv -> {
+            PriceRollup rollup = inv.getArgument(0);
+            rollups.put(rollup.getProductId(), rollup);
+            return rollup;
+        });
+    }
+
+    /**
+     * 超出 4 字节范围的价格不写入，不会在汇总环中溢出成负数
+     */
+    @Test
+    void testPriceBeyondRingRangeIsRejected() {
+        store.record(1L, new BigDecimal("21474836.48"), Instant.now());
+
+        assertTrue(chunks.isEmpty());
+        assertTrue(rollups.isEmpty());
+
+        store.record(1L, new BigDecimal("21474836.47"), Instant.now());
+        assertEquals(21474836.47, store.dailyCloses(1L, 1, LocalDate.now()).closeAt(0), 1e-9);
+    }
+
+    /**
+     * 没有变价的日子沿用上一日收盘价，同一天多次变价取最后一次
+     */
+    @Test
+    void testDailyClosesCarryForwardAcrossGaps() {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        store.record(2L, new BigDecimal("10.00"), at(day));
+        store.record(2L, new BigDecimal("12.50"), at(day).plusSeconds(60));
+        store.record(2L, new BigDecimal("9.90"), at(day.plusDays(3)));
+
+        PriceHistoryStore.DailySeries series = store.dailyCloses(2L, 7, day.plusDays(4));
+
+        assertEquals(day, series.dayAt(0), "早于首条记录的日期不返回");
+        assertArrayEquals(new double[] { 12.5, 12.5, 12.5, 9.9, 9.9 }, closes(series), 1e-9);
+    }
+
+    /**
+     * 写满一块后封块，新块从完整价格重新开始，跨块读取仍按时间顺序还原全部变更点
+     */
+    @Test
+    void testTicksRoundTripAcrossChunkBoundary() {
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        int points = 600;
+        for (int i = 0; i < points; i++) {
+            // 价格上下跳动，差值有正有负
+            store.record(3L, BigDecimal.valueOf(1000 + (i % 2 == 0 ? i : -i), 2), start.plusSeconds(i * 37L));
+        }
+
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).getSealed());
+        List<long[]> ticks = store.readTicks(3L);
+        assertEquals(points, ticks.size());
+        for (int i = 0; i < points; i++) {
+            assertEquals(start.getEpochSecond() + i * 37L, ticks.get(i)[0]);
+            assertEquals(1000 + (i % 2 == 0 ? i : -i), ticks.get(i)[1]);
+        }
+    }
+
+    /**
+     * 启动补录时每个商品单独提交，不在一个事务里锁住全部商品行
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSeedRecordsEachProductInItsOwnTransaction() {
+        ProductCatalog.Snapshot snapshot = mock(ProductCatalog.Snapshot.class);
+        when(snapshot.getProducts()).thenReturn(List.of(product(4L, "8.00"), product(5L, "6.00")));
+        when(productCatalog.current()).thenReturn(snapshot);
+        when(rollupRepository.findAll()).thenReturn(List.of());
+        doAnswer(inv -> {
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        store.seed();
+
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        assertEquals(2, rollups.size());
+    }
+
+    private static Instant at(LocalDate day) {
+        return day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static double[] closes(PriceHistoryStore.DailySeries series) {
+        double[] closes = new double[series.size()];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = series.closeAt(i);
+        }
+        return closes;
+    }
+
+    private static Product product(Long id, String price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(new BigDecimal(price));
+        return product;
+    }
+}
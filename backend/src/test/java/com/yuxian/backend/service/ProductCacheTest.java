@@ -0,0 +1,99 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.event.ProductChangedEvent;
+import com.yuxian.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCacheTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductCache productCache;
+
+    @BeforeEach
+    void setUp() {
+        productCache = new ProductCache(productRepository);
+        ReflectionTestUtils.setField(productCache, "maxSize", 100);
+        ReflectionTestUtils.setField(productCache, "ttlSeconds", 60L);
+        productCache.init();
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        Product product = new Product();
+        product.setId(1L);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(product);
+        });
+
+        int threads = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Product>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> productCache.get(1L)));
+        }
+
+        // 加载线程已进入查库，其余线程都已计入 coalesced 并等待同一个结果后再放行
+        assertTrue(loading.await(5, TimeUnit.SECONDS), "没有线程开始加载");
+        awaitCoalesced(threads - 1L);
+        release.countDown();
+        for (Future<Product> future : futures) {
+            assertSame(product, future.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        verify(productRepository, times(1)).findById(1L);
+        assertSame(product, productCache.get(1L));
+        assertEquals(threads - 1L, productCache.getMetrics().get("coalesced"));
+        assertEquals(1L, productCache.getMetrics().get("hits"));
+    }
+
+    private void awaitCoalesced(long expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Long.valueOf(expected).equals(productCache.getMetrics().get("coalesced"))) {
+            assertTrue(System.nanoTime() < deadline, "等待线程未全部合并到同一次加载");
+            Thread.yield();
+        }
+    }
+
+    @Test
+    void testInvalidateOnProductChange() {
+        Product product = new Product();
+        product.setId(2L);
+        when(productRepository.findById(2L)).thenReturn(Optional.of(product));
+
+        productCache.get(2L);
+        productCache.onProductChanged(ProductChangedEvent.stock(2L, -1));
+        productCache.get(2L);
+
+        verify(productRepository, times(2)).findById(2L);
+    }
+}
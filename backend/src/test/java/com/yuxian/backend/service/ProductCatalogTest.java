@@ -0,0 +1,89 @@
+package com.yuxian.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuxian.backend.dto.CursorPage;
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.utils.CursorCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalog(productRepository, new ObjectMapper().findAndRegisterModules());
+    }
+
+    /**
+     * 同一上架日期的多个商品跨页时按 ID 倒序接续，无上架日期的排在最后，逐页翻完不重不漏
+     */
+    @Test
+    void testPagingAcrossEqualAndNullListDates() {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1L, day), product(2L, null), product(3L, day), product(4L, day.plusDays(1)),
+                product(5L, day), product(6L, null), product(7L, day.minusDays(1))));
+
+        ProductCatalog.Snapshot snapshot = catalog.current();
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Product> page = snapshot.page(null, cursor, 2);
+            page.getItems().forEach(p -> seen.add(p.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(4L, 5L, 3L, 1L, 7L, 6L, 2L), seen);
+    }
+
+    @Test
+    void testLastFullPageHasNoNextCursor() {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        when(productRepository.findAll()).thenReturn(List.of(product(1L, day), product(2L, day)));
+
+        CursorPage<Product> page = catalog.current().page(null, null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void testCursorRoundTripAndRejectsMalformed() {
+        long[] keys = { Long.MIN_VALUE, 42L };
+        String cursor = CursorCodec.encode(keys);
+
+        assertArrayEquals(keys, CursorCodec.decode(cursor, 2));
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+        assertThrows(RuntimeException.class, () -> CursorCodec.decode(cursor, 3));
+        assertThrows(RuntimeException.class, () -> CursorCodec.decode("not a cursor!", 2));
+        assertThrows(RuntimeException.class, () -> CursorCodec.decode(CursorCodec.encode(1L), 2));
+    }
+
+    private static Product product(Long id, LocalDate listDate) {
+        Product p = new Product();
+        p.setId(id);
+        p.setListDate(listDate);
+        return p;
+    }
+}
@@ -0,0 +1,68 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new ProductSearchIndex(productCatalog, productRepository);
+        index.index(product(1L, "Premium大虾 A5等级", "Norway"));
+        index.index(product(2L, "东海带鱼 500g", "舟山"));
+        index.index(product(3L, "冰鲜三文鱼", "Norway"));
+    }
+
+    /**
+     * 英文和数字片段与 LIKE 一样按子串命中，不要求输入完整单词
+     */
+    @Test
+    void testPartialLatinAndDigitQueriesMatchLikeSubstrings() {
+        assertEquals(List.of(1L), index.search("rem", 10));
+        assertEquals(List.of(1L), index.search("PREMIUM", 10));
+        assertEquals(List.of(2L), index.search("00g", 10));
+        assertEquals(List.of(1L), index.search("a5", 10));
+        assertEquals(List.of(1L, 3L), sorted(index.search("orw", 10)));
+        assertTrue(index.search("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void testHanBigramsStillRequireEveryTerm() {
+        assertEquals(List.of(2L), index.search("带鱼", 10));
+        assertEquals(List.of(3L), index.search("三文鱼", 10));
+        assertTrue(index.search("带虾", 10).isEmpty());
+
+        index.remove(2L);
+        assertTrue(index.search("带鱼", 10).isEmpty());
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+
+    private static Product product(Long id, String name, String origin) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setOrigin(origin);
+        return product;
+    }
+}
@@ -0,0 +1,98 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.entity.Product;
+import com.yuxian.backend.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationSamplerTest {
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    /**
+     * 有库存的商品少于请求条数时，当天的结果仍然缓存，不会每次请求都重新抽样
+     */
+    @Test
+    void testShortPickIsStillCachedForTheDay() {
+        ProductCatalog.Snapshot snapshot = mock(ProductCatalog.Snapshot.class);
+        Product a = product(1L, 5);
+        Product b = product(2L, 3);
+        when(snapshot.getProducts()).thenReturn(List.of(a, b, product(3L, 0)));
+        when(snapshot.getProduct(1L)).thenReturn(a);
+        when(snapshot.getProduct(2L)).thenReturn(b);
+        when(productCatalog.current()).thenReturn(snapshot);
+        when(orderRepository.sumSalesByProductSince(any())).thenReturn(List.of());
+
+        RecommendationSampler sampler = new RecommendationSampler(productCatalog, orderRepository);
+        List<Product> first = sampler.recommend(4);
+        Object pick = ReflectionTestUtils.getField(sampler, "dailyPick");
+        List<Product> second = sampler.recommend(4);
+
+        assertEquals(2, first.size(), "售罄商品不参与抽样");
+        assertEquals(first, second);
+        assertSame(pick, ReflectionTestUtils.getField(sampler, "dailyPick"), "第二次请求应直接命中当天结果");
+        verify(snapshot, times(1)).getProducts();
+    }
+
+    /**
+     * 别名表的抽中频率与权重成正比
+     */
+    @Test
+    void testAliasTableFollowsWeights() {
+        RecommendationSampler.AliasTable table = RecommendationSampler.AliasTable.fromWeights(
+                1L, new long[] { 10L, 20L, 30L }, new double[] { 1.0, 2.0, 5.0 }, 8.0);
+        Random random = new Random(42);
+        int[] hits = new int[3];
+        int draws = 80_000;
+        for (int i = 0; i < draws; i++) {
+            hits[table.next(random)]++;
+        }
+
+        assertEquals(1.0 / 8, (double) hits[0] / draws, 0.01);
+        assertEquals(2.0 / 8, (double) hits[1] / draws, 0.01);
+        assertEquals(5.0 / 8, (double) hits[2] / draws, 0.01);
+    }
+
+    /**
+     * 不放回抽样返回互不相同的商品，条数为 min(count, 商品数)；权重极度倾斜时也能补齐
+     */
+    @Test
+    void testAliasSampleIsDistinctAndCapped() {
+        RecommendationSampler.AliasTable table = RecommendationSampler.AliasTable.fromWeights(
+                1L, new long[] { 1L, 2L, 3L, 4L }, new double[] { 1e9, 1e-9, 1e-9, 1e-9 }, 1e9 + 3e-9);
+
+        List<Long> some = table.sample(new Random(7), 3);
+        List<Long> all = table.sample(new Random(7), 10);
+
+        assertEquals(3, some.size());
+        assertEquals(3, new HashSet<>(some).size());
+        assertEquals(4, all.size());
+        assertEquals(4, new HashSet<>(all).size());
+    }
+
+    static Product product(Long id, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setStock(stock);
+        return product;
+    }
+}
@@ -0,0 +1,102 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.dto.RefundAuditResult;
+import com.yuxian.backend.entity.OrderStatus;
+import com.yuxian.backend.repository.OrderRepository;
+import com.yuxian.backend.repository.ProductRepository;
+import com.yuxian.backend.repository.RefundFeedbackRepository;
+import com.yuxian.backend.repository.UserRepository;
+import com.yuxian.backend.repository.WalletLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefundBatchAuditServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private WalletLogRepository walletLogRepository;
+
+    @Mock
+    private RefundFeedbackRepository refundFeedbackRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private StockReservationEngine stockReservationEngine;
+
+    @InjectMocks
+    private RefundBatchAuditService auditService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(auditService, "chunkSize", 3);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApproveAggregatesPerUserAndIsolatesFailedChunk() {
+        when(orderRepository.lockPendingRefunds(List.of(1L, 2L, 9L))).thenReturn(List.of(
+                new Object[] { 1L, "alice", new BigDecimal("10.00") },
+                new Object[] { 2L, "alice", new BigDecimal("5.50") }));
+        when(orderRepository.lockPendingRefunds(List.of(3L))).thenThrow(new RuntimeException("锁等待超时"));
+        when(userRepository.findIdsByUsernames(any())).thenReturn(List.<Object[]>of(new Object[] { "alice", 7L }));
+        SortedMap<Long, Integer> restock = new TreeMap<>(Map.of(100L, 3, 200L, 1));
+        when(orderRepository.sumItemQuantities(any())).thenReturn(restock);
+        // 100 为热点商品，由内存引擎归还；200 直接写库
+        SortedMap<Long, Integer> unmanaged = new TreeMap<>(Map.of(200L, 1));
+        when(stockReservationEngine.releaseAll(restock)).thenReturn(unmanaged);
+
+        List<RefundAuditResult> results = auditService.audit(List.of(1L, 2L, 2L, 9L, 3L), true, null, "admin");
+
+        assertEquals(4, results.size(), "重复的订单只处理一次");
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess(), "不在售后流程中的订单应失败");
+        assertFalse(results.get(3).isSuccess(), "失败块中的订单应失败");
+
+        ArgumentCaptor<SortedMap<String, BigDecimal>> credits = ArgumentCaptor.forClass(SortedMap.class);
+        verify(userRepository).creditBalances(credits.capture());
+        assertEquals(1, credits.getValue().size(), "同一用户的退款应合并为一次入账");
+        assertEquals(0, new BigDecimal("15.50").compareTo(credits.getValue().get("alice")));
+
+        verify(orderRepository).updateStatus(eq(new LinkedHashSet<>(List.of(1L, 2L))), eq(OrderStatus.REFUND_PENDING), eq(OrderStatus.REFUNDED));
+        verify(productRepository).adjustStockBatch(unmanaged);
+        verify(notificationOutbox).toUser(eq("alice"), any());
+    }
+}
@@ -0,0 +1,113 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationEngineTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private StockReservationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new StockReservationEngine(productRepository);
+        ReflectionTestUtils.setField(engine, "stripeCount", 4);
+        when(productRepository.loadStock(List.of(1L))).thenReturn(Map.of(1L, 10));
+        engine.enable(1L);
+    }
+
+    /**
+     * 热点商品的归还先加回内存，再与预占量合并成一次回写；非热点商品交回调用方写库
+     */
+    @Test
+    void testReleaseGoesThroughMemoryAndFlush() {
+        assertEquals(StockReservationEngine.Result.RESERVED, engine.reserve(1L, 7));
+
+        SortedMap<Long, Integer> unmanaged = engine.releaseAll(new TreeMap<>(Map.of(1L, 2, 2L, 5)));
+
+        assertEquals(Map.of(2L, 5), unmanaged);
+        assertEquals(5, engine.available(1L));
+        when(productRepository.adjustStockBatch(any())).thenReturn(Collections.emptySet());
+        engine.flush();
+        verify(productRepository).adjustStockBatch(new TreeMap<>(Map.of(1L, -5)));
+    }
+
+    /**
+     * 数据库库存被改小后回写会扣成负数，被拒绝时按数据库重新对齐内存
+     */
+    @Test
+    void testRejectedFlushResyncsFromDatabase() {
+        engine.reserve(1L, 6);
+        when(productRepository.adjustStockBatch(any())).thenReturn(Set.of(1L));
+        when(productRepository.loadStock(List.of(1L))).thenReturn(Map.of(1L, 3));
+
+        engine.flush();
+
+        assertEquals(3, engine.available(1L));
+        assertEquals(0, engine.getMetrics().get("pending"));
+    }
+
+    /**
+     * 单段不够时跨段凑齐；凑不齐时已取走的部分全部退回，各段余量不变
+     */
+    @Test
+    void testCrossStripeAcquireRollsBackWhenShort() {
+        StockReservationEngine.StripedStock stock = new StockReservationEngine.StripedStock(1L, 10, 4);
+
+        assertTrue(stock.tryAcquire(9));
+        assertEquals(1, stock.available());
+
+        int[] before = new int[4];
+        for (int i = 0; i < 4; i++) {
+            before[i] = stock.stripes.get(i);
+        }
+        assertFalse(stock.tryAcquire(2));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(before[i], stock.stripes.get(i));
+        }
+    }
+
+    /**
+     * 事务回滚后预占量退回内存，不计入待回写
+     */
+    @Test
+    void testRolledBackReservationIsReturned() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(StockReservationEngine.Result.RESERVED, engine.reserve(1L, 4));
+            assertEquals(6, engine.available(1L));
+
+            for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(10, engine.available(1L));
+        assertEquals(0, engine.getMetrics().get("pending"));
+        assertEquals(0, engine.getMetrics().get("inFlight"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.event.UserChangedEvent;
+import com.yuxian.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserPrincipalCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserPrincipalCache principalCache;
+
+    @BeforeEach
+    void setUp() {
+        principalCache = new UserPrincipalCache(userRepository);
+        ReflectionTestUtils.setField(principalCache, "maxSize", 100);
+        ReflectionTestUtils.setField(principalCache, "ttlSeconds", 60L);
+        principalCache.init();
+    }
+
+    @Test
+    void testRepeatedLookupsHitCacheUntilInvalidated() {
+        when(userRepository.findPrincipalByUsername("alice"))
+                .thenReturn(List.<Object[]>of(new Object[] { 7L, "USER" }))
+                .thenReturn(List.<Object[]>of(new Object[] { 7L, "ADMIN" }));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("USER", principalCache.get("alice").getRole());
+        }
+        verify(userRepository, times(1)).findPrincipalByUsername("alice");
+
+        principalCache.onUserChanged(new UserChangedEvent("alice"));
+        assertEquals("ADMIN", principalCache.get("alice").getRole(), "失效后应重新加载最新角色");
+        assertEquals(7L, principalCache.get("alice").getUserId());
+        verify(userRepository, times(2)).findPrincipalByUsername("alice");
+        assertEquals(5.0 / 7, (double) principalCache.getMetrics().get("hitRatio"), 1e-9);
+    }
+
+    @Test
+    void testMissingUserIsNotCached() {
+        when(userRepository.findPrincipalByUsername("ghost")).thenReturn(List.of());
+
+        assertNull(principalCache.get("ghost"));
+        assertNull(principalCache.get("ghost"));
+        verify(userRepository, times(2)).findPrincipalByUsername("ghost");
+    }
+}
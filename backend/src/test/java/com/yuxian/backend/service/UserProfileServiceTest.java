@@ -0,0 +1,71 @@
+package com.yuxian.backend.service;
+
+import com.yuxian.backend.dto.UserProfileVO;
+import com.yuxian.backend.entity.Address;
+import com.yuxian.backend.entity.User;
+import com.yuxian.backend.entity.UserProfile;
+import com.yuxian.backend.repository.AddressRepository;
+import com.yuxian.backend.repository.UserProfileRepository;
+import com.yuxian.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserProfileServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserProfileRepository userProfileRepository;
+
+    @Mock
+    private AddressRepository addressRepository;
+
+    @InjectMocks
+    private UserProfileService userProfileService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReplaceAddressesRebindsToUserAndAssemblesProfile() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setPoints(30);
+        UserProfile profile = new UserProfile();
+        profile.setUserId(7L);
+        profile.setAvatar("/images/avatars/a.png");
+
+        Address address = new Address();
+        address.setId(99L);
+        address.setContact("张三");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(userProfileRepository.findById(7L)).thenReturn(Optional.of(profile));
+        when(addressRepository.findByUserIdOrderByIdAsc(7L)).thenReturn(List.of(address));
+
+        UserProfileVO vo = userProfileService.replaceAddresses(7L, List.of(address));
+
+        var order = inOrder(addressRepository);
+        order.verify(addressRepository).deleteByUserId(7L);
+        ArgumentCaptor<List<Address>> saved = ArgumentCaptor.forClass(List.class);
+        order.verify(addressRepository).saveAll(saved.capture());
+        assertNull(saved.getValue().get(0).getId(), "地址应作为新行插入");
+        assertEquals(7L, saved.getValue().get(0).getUserId());
+
+        assertEquals("alice", vo.getUsername());
+        assertEquals(30, vo.getPoints());
+        assertEquals("/images/avatars/a.png", vo.getAvatar());
+        assertEquals(1, vo.getAddresses().size());
+    }
+}
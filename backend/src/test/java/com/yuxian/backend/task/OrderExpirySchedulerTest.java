@@ -0,0 +1,58 @@
+package com.yuxian.backend.task;
+
+import com.yuxian.backend.repository.OrderRepository;
+import com.yuxian.backend.utils.TimingWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderExpirySchedulerTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderTimeoutTask orderTimeoutTask;
+
+    private OrderExpiryScheduler scheduler;
+    private TimingWheel<Long> wheel;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new OrderExpiryScheduler(orderRepository, orderTimeoutTask);
+        ReflectionTestUtils.setField(scheduler, "timeoutMinutes", 5L);
+        ReflectionTestUtils.setField(scheduler, "tickMillis", 100L);
+        wheel = new TimingWheel<>(100, System.currentTimeMillis());
+        ReflectionTestUtils.setField(scheduler, "wheel", wheel);
+    }
+
+    /**
+     * 时间轮提前触发、数据库认为尚未到期的订单重新登记；已支付的订单丢弃
+     */
+    @Test
+    void testFiredButNotCancelledOrdersAreRescheduled() {
+        LocalDateTime dbCreateTime = LocalDateTime.now().minusMinutes(5).plusSeconds(1);
+        when(orderTimeoutTask.cancelExpiredOrders(List.of(1L, 2L, 3L))).thenReturn(Set.of(1L));
+        when(orderRepository.findUnpaidDeadlines(List.of(2L, 3L)))
+                .thenReturn(List.<Object[]>of(new Object[] { 2L, dbCreateTime }));
+
+        scheduler.expire(List.of(1L, 2L, 3L));
+
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(System.currentTimeMillis()).isEmpty(), "不应在数据库到期时间之前再次触发");
+        assertTrue(wheel.remove(2L));
+        assertEquals(1L, scheduler.getMetrics().get("cancelled"));
+        assertEquals(1L, scheduler.getMetrics().get("rescheduled"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.yuxian.backend.task;
+
+import com.yuxian.backend.entity.OutboxMessage;
+import com.yuxian.backend.repository.OutboxMessageRepository;
+import com.yuxian.backend.service.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    private OutboxDispatcher dispatcher;
+    private MockedStatic<WebSocketServer> webSocket;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OutboxDispatcher(outboxMessageRepository);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 200);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 5);
+        ReflectionTestUtils.setField(dispatcher, "retryBaseMs", 1000L);
+        webSocket = Mockito.mockStatic(WebSocketServer.class);
+        webSocket.when(() -> WebSocketServer.isOnline(anyString())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        webSocket.close();
+    }
+
+    /**
+     * 发送失败按指数退避重排，同一用户本批后续消息不发，其他用户不受影响
+     */
+    @Test
+    void testFailedSendBacksOffAndHoldsLaterMessagesOfSameUser() {
+        OutboxMessage first = message(1L, "alice", "a1", 2);
+        OutboxMessage second = message(2L, "alice", "a2", 0);
+        OutboxMessage other = message(3L, "bob", "b1", 0);
+        when(outboxMessageRepository.findDue(any(), any())).thenReturn(List.of(first, second, other));
+        webSocket.when(() -> WebSocketServer.sendToUser("alice", "a1")).thenReturn(false);
+        webSocket.when(() -> WebSocketServer.sendToUser("bob", "b1")).thenReturn(true);
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(3, dispatcher.dispatchBatch());
+        LocalDateTime after = LocalDateTime.now();
+
+        ArgumentCaptor<LocalDateTime> next = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxMessageRepository).scheduleRetry(eq(1L), eq(3), next.capture(), eq(OutboxMessage.PENDING));
+        // 第 3 次尝试：1000ms << 2
+        assertFalse(next.getValue().isBefore(before.plusSeconds(4)));
+        assertFalse(next.getValue().isAfter(after.plusSeconds(4)));
+
+        webSocket.verify(() -> WebSocketServer.sendToUser("alice", "a2"), never());
+        verify(outboxMessageRepository, never()).scheduleRetry(eq(2L), anyInt(), any(), anyString());
+        verify(outboxMessageRepository).markFinished(eq(List.of(3L)), eq(OutboxMessage.SENT), any());
+
+        assertEquals(1L, dispatcher.getMetrics().get("retried"));
+        assertEquals(1L, dispatcher.getMetrics().get("sent"));
+        assertEquals(0L, dispatcher.getMetrics().get("dead"));
+    }
+
+    @Test
+    void testMessageMarkedDeadAfterMaxAttempts() {
+        OutboxMessage message = message(7L, "alice", "a1", 4);
+        when(outboxMessageRepository.findDue(any(), any())).thenReturn(List.of(message));
+        webSocket.when(() -> WebSocketServer.sendToUser("alice", "a1")).thenReturn(false);
+
+        dispatcher.dispatchBatch();
+
+        verify(outboxMessageRepository).scheduleRetry(eq(7L), eq(5), any(), eq(OutboxMessage.DEAD));
+        verify(outboxMessageRepository, never()).scheduleRetry(anyLong(), anyInt(), any(),
+                eq(OutboxMessage.PENDING));
+        verify(outboxMessageRepository, never()).markFinished(any(), any(), any());
+        assertEquals(1L, dispatcher.getMetrics().get("dead"));
+        assertEquals(0L, dispatcher.getMetrics().get("retried"));
+    }
+
+    private static OutboxMessage message(Long id, String recipient, String payload, int attempts) {
+        OutboxMessage message = new OutboxMessage();
+        message.setId(id);
+        message.setRecipient(recipient);
+        message.setPayload(payload);
+        message.setStatus(OutboxMessage.PENDING);
+        message.setAttempts(attempts);
+        message.setCreateTime(LocalDateTime.now());
+        return message;
+    }
+}
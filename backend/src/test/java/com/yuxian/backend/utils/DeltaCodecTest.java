@@ -0,0 +1,38 @@
+package com.yuxian.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeltaCodecTest {
+
+    /**
+     * 零、正负差值以及 7 位分组边界、long 极值都能原样读回，读完后位置恰好停在末尾
+     */
+    @Test
+    void testRoundTripsSignedAndBoundaryValues() {
+        long[] values = { 0L, 1L, -1L, 63L, -64L, 64L, -65L, 8191L, -8192L, 1L << 35, -(1L << 35),
+                Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        byte[] data = new byte[0];
+        for (long value : values) {
+            data = DeltaCodec.append(data, value);
+        }
+
+        int[] pos = { 0 };
+        for (long value : values) {
+            assertEquals(value, DeltaCodec.readVarLong(data, pos));
+        }
+        assertEquals(data.length, pos[0]);
+    }
+
+    /**
+     * zigzag 后绝对值小的差值只占一个字节
+     */
+    @Test
+    void testSmallDeltasTakeOneByte() {
+        assertEquals(1, DeltaCodec.append(null, 63L).length);
+        assertEquals(1, DeltaCodec.append(null, -64L).length);
+        assertEquals(2, DeltaCodec.append(null, 64L).length);
+        assertEquals(10, DeltaCodec.append(null, Long.MIN_VALUE).length);
+    }
+}
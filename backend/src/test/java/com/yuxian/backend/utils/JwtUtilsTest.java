@@ -0,0 +1,75 @@
+package com.yuxian.backend.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "TestSecretKeyThatIsAtLeastThirtyTwoCharsLong";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secretString", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "expirationTime", 3600000L);
+        ReflectionTestUtils.setField(jwtUtils, "cacheMaxSize", 100);
+        setTime(1_700_000_000_500L);
+        jwtUtils.init();
+    }
+
+    @Test
+    void testRevokedTokensAreRejected() {
+        String token = jwtUtils.generateToken("alice");
+        assertEquals("alice", jwtUtils.validateToken(token));
+        assertNull(jwtUtils.validateToken(token + "x"), "签名被篡改的 Token 应被拒绝");
+
+        jwtUtils.revokeToken(token);
+        assertNull(jwtUtils.validateToken(token), "注销后的 Token 即使已缓存也应失效");
+
+        String other = jwtUtils.generateToken("bob");
+        assertEquals("bob", jwtUtils.validateToken(other));
+        // 与签发在同一秒、甚至同一毫秒内改密，旧 Token 也必须失效
+        jwtUtils.revokeAllFor("bob");
+        assertNull(jwtUtils.validateToken(other), "改密前签发的 Token 应失效");
+
+        setTime(1_700_000_000_501L);
+        assertEquals("bob", jwtUtils.validateToken(jwtUtils.generateToken("bob")), "改密后重新签发的 Token 可用");
+    }
+
+    @Test
+    void testExpiryFollowsInjectedClock() {
+        String token = jwtUtils.generateToken("alice");
+        assertEquals("alice", jwtUtils.validateToken(token));
+
+        setTime(1_700_000_000_500L + 3600000L);
+        assertNull(jwtUtils.validateToken(token), "过期的 Token 即使已缓存也应失效");
+    }
+
+    /**
+     * 同一 Token 只在首次校验时验签，之后命中缓存
+     */
+    @Test
+    void testRepeatedValidationHitsCache() {
+        String token = jwtUtils.generateToken("alice");
+        for (int i = 0; i < 5; i++) {
+            assertEquals("alice", jwtUtils.validateToken(token));
+        }
+
+        assertEquals(1L, jwtUtils.getMetrics().get("misses"));
+        assertEquals(4L, jwtUtils.getMetrics().get("hits"));
+        assertEquals(1, jwtUtils.getMetrics().get("cacheSize"));
+    }
+
+    private void setTime(long millis) {
+        ReflectionTestUtils.setField(jwtUtils, "clock", Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,73 @@
+package com.yuxian.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightCacheTest {
+
+    /**
+     * 加载开始后发生失效（如用户被降权），旧结果只返回给本次调用，下一次读取重新加载
+     */
+    @Test
+    void testLoadStartedBeforeInvalidateIsNotPublished() throws Exception {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(100, 60000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<String> stale = pool.submit(() -> cache.get("alice", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "ADMIN";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.invalidate("alice");
+        release.countDown();
+        assertEquals("ADMIN", stale.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(0, cache.size());
+        assertEquals("USER", cache.get("alice", key -> {
+            loads.incrementAndGet();
+            return "USER";
+        }));
+        assertEquals("USER", cache.get("alice", key -> "ADMIN"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testTrimOldestSkipsEntriesThatMayNotBeEvicted() {
+        ConcurrentHashMap<String, long[]> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 12; i++) {
+            // [创建时间, 是否可淘汰]
+            map.put("k" + i, new long[] { i, i == 0 ? 0 : 1 });
+        }
+
+        int removed = SingleFlightCache.trimOldest(map, 10, e -> e[0], e -> e[1] == 1);
+
+        assertEquals(3, removed);
+        assertTrue(map.containsKey("k0"), "不可淘汰的条目被删除");
+        assertFalse(map.containsKey("k1"));
+        assertFalse(map.containsKey("k3"));
+        assertTrue(map.containsKey("k4"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
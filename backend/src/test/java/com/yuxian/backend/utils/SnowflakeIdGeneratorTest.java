@@ -0,0 +1,40 @@
+package com.yuxian.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void testIdsAreUniqueIncreasingAndJsSafe() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        Set<Long> seen = new HashSet<>();
+        long previous = 0;
+        long start = System.currentTimeMillis();
+        // 远超单毫秒 128 个序号，覆盖序号借用下一毫秒的路径
+        for (int i = 0; i < 100000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "ID 应单调递增");
+            assertTrue(id < (1L << 53), "ID 应在 JavaScript 安全整数范围内");
+            assertTrue(seen.add(id));
+            previous = id;
+        }
+        assertTrue(SnowflakeIdGenerator.timestampOf(previous) >= start);
+    }
+
+    @Test
+    void testNodesDoNotCollide() {
+        SnowflakeIdGenerator a = new SnowflakeIdGenerator(1);
+        SnowflakeIdGenerator b = new SnowflakeIdGenerator(2);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(seen.add(a.nextId()));
+            assertTrue(seen.add(b.nextId()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1));
+    }
+}
@@ -0,0 +1,55 @@
+package com.yuxian.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void testFiresAtDeadlineAcrossLevels() {
+        long start = 1_000_000L;
+        TimingWheel<Long> wheel = new TimingWheel<>(100, start);
+        Random random = new Random(42);
+        long[] deadlines = new long[2000];
+        for (int i = 0; i < deadlines.length; i++) {
+            // 覆盖第 0 ~ 3 层以及已过期的情况
+            deadlines[i] = start - 500 + (long) (random.nextDouble() * 3_600_000L);
+            wheel.add((long) i, deadlines[i]);
+        }
+        wheel.remove(7L);
+
+        long[] firedAt = new long[deadlines.length];
+        for (long now = start; now <= start + 3_700_000L; now += 100) {
+            for (Long key : wheel.advance(now)) {
+                firedAt[key.intValue()] = now;
+            }
+        }
+
+        for (int i = 0; i < deadlines.length; i++) {
+            if (i == 7) {
+                assertEquals(0, firedAt[i], "已移除的任务不应触发");
+                continue;
+            }
+            long expected = Math.max(start, deadlines[i]);
+            assertTrue(firedAt[i] >= expected, "任务 " + i + " 提前触发");
+            assertTrue(firedAt[i] < expected + 100, "任务 " + i + " 延迟超过一个 tick");
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCatchUpAfterPause() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 0);
+        wheel.add("a", 5_000);
+        wheel.add("b", 500_000);
+        List<String> due = new ArrayList<>(wheel.advance(10_000));
+        assertEquals(List.of("a"), due);
+        assertEquals(List.of("b"), wheel.advance(600_000));
+    }
+}